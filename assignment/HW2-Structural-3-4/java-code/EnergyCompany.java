@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 //1.Proxy
 interface IDataBaseService {
@@ -14,25 +15,210 @@ class WeatherData implements IDataBaseService {
     }
 }
 
+// Count-min sketch of recent access frequency with 4-bit-style saturation at 15.
+// Counters are halved every sampleSize increments so old popularity fades.
+class FrequencySketch {
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries * 2) - 1) << 1;
+        counters = new byte[ROWS][width];
+        mask = width - 1;
+        sampleSize = Math.max(10, expectedEntries * 10);
+    }
+
+    private int index(Object key, int row) {
+        int h = key.hashCode() * SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    void increment(Object key) {
+        for (int row = 0; row < ROWS; row++) {
+            int i = index(key, row);
+            if (counters[row][i] < MAX_COUNT) {
+                counters[row][i]++;
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int min = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            min = Math.min(min, counters[row][index(key, row)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+}
+
+// Bounded cache with W-TinyLFU admission: new entries land in a small LRU window;
+// an entry leaving the window only replaces the main region's LRU victim if the
+// frequency sketch says it is used more often. Entries expire after ttlMillis.
+// All operations take the cache's lock, so it is safe from request threads.
+class TinyLfuCache<K, V> {
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAtNanos;
+
+        Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final int windowCapacity, mainCapacity;
+    private final long ttlNanos;
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long hits, misses, evictions;
+
+    public TinyLfuCache(int maximumSize, long ttlMillis) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("maximumSize must be at least 2");
+        }
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Entry<V> entry = window.get(key);
+        if (entry == null) {
+            entry = main.get(key);
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (expired(entry, System.nanoTime())) {
+            window.remove(key);
+            main.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos);
+        if (main.containsKey(key)) {
+            main.put(key, entry);
+            return;
+        }
+        window.put(key, entry);
+        if (window.size() > windowCapacity) {
+            K candidate = window.keySet().iterator().next();
+            admit(candidate, window.remove(candidate));
+        }
+    }
+
+    // Expired entries are dropped on the way through instead of waiting for a
+    // read of the same key, and never win or lose a frequency comparison
+    private void admit(K candidate, Entry<V> entry) {
+        long now = System.nanoTime();
+        if (expired(entry, now)) {
+            return;
+        }
+        Iterator<Map.Entry<K, Entry<V>>> lru = main.entrySet().iterator();
+        while (main.size() >= mainCapacity && expired(lru.next().getValue(), now)) {
+            lru.remove();
+        }
+        if (main.size() < mainCapacity) {
+            main.put(candidate, entry);
+            return;
+        }
+        K victim = main.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            main.remove(victim);
+            main.put(candidate, entry);
+        }
+        evictions++; // either the victim or the rejected candidate leaves
+    }
+
+    private static boolean expired(Entry<?> entry, long now) {
+        return now - entry.expiresAtNanos >= 0;
+    }
+
+    public synchronized int size() {
+        return window.size() + main.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size=" + size() + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+    }
+}
+
 class CacheWeatherData implements IDataBaseService {
     private WeatherData data;
-    private HashMap<String, String> cache = new HashMap<>();
+    private final TinyLfuCache<String, String> cache;
+
+    public CacheWeatherData() {
+        this(10_000, TimeUnit.HOURS.toMillis(1));
+    }
+
+    public CacheWeatherData(int maximumSize, long ttlMillis) {
+        this.cache = new TinyLfuCache<>(maximumSize, ttlMillis);
+    }
 
     @Override
     public String getWeatherData(String byLocation, String byDate) {
         String key = byLocation + ":" + byDate;
-        if (cache.containsKey(key)) {
+        if (cache.get(key) != null) {
             return "From cache data: " + byLocation + ":" + byDate +
                     " daytime, average temperature 75°F, 32% Humidity";
         } else {
-            if (data == null) {
-                data = new WeatherData();
-            }
-            var fromDb = data.getWeatherData(byLocation, byDate);
+            var fromDb = database().getWeatherData(byLocation, byDate);
             cache.put(key, fromDb);
             return fromDb;
         }
     }
+
+    private synchronized WeatherData database() {
+        if (data == null) {
+            data = new WeatherData();
+        }
+        return data;
+    }
+
+    public TinyLfuCache<String, String> cache() {
+        return cache;
+    }
 }
 
 // 2.Adapter
@@ -120,6 +306,7 @@ class EnergyCompany {
         System.out.println(weather.getWeatherInformation("JP", "Golden,CO", "September 29th,2025"));
 
         System.out.println(weather.getWeatherInformation("Richad", "Golden,CO", "September 25th,2025"));
+        System.out.println("Cache: " + ((CacheWeatherData) dataBase).cache());
         // Fetching info from Remote Database
         IDataBaseService remoteAPI = new RemoteAdapter(new RemoteWeatherAPI());
         WeatherFacade remoteWeather = new WeatherFacade(remoteAPI);
@@ -1,4 +1,392 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Console log that a parallel sweep can capture per thread, so each subtree's
+// output can be stitched back together in tree order.
+class SecurityLog {
+    private static final ThreadLocal<List<String>> capture = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> quiet = ThreadLocal.withInitial(() -> false);
+    private static volatile boolean enabled = true;
+
+    // Silences all component output in the JVM; see quietly for one thread
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Callers building a line from several parts check this first
+    static boolean isEnabled() {
+        return enabled && !quiet.get();
+    }
+
+    static void println(String line) {
+        if (!isEnabled()) {
+            return;
+        }
+        List<String> lines = capture.get();
+        if (lines != null) {
+            lines.add(line);
+        } else {
+            System.out.println(line);
+        }
+    }
+
+    // Runs the action and returns the lines it logged on this thread
+    static List<String> captured(Runnable action) {
+        List<String> previous = capture.get();
+        List<String> lines = new ArrayList<>();
+        capture.set(lines);
+        try {
+            action.run();
+        } finally {
+            capture.set(previous);
+        }
+        return lines;
+    }
+
+    // Runs the action with output silenced on this thread only, so one
+    // simulation does not silence sweeps running elsewhere in the JVM
+    static void quietly(Runnable action) {
+        boolean previous = quiet.get();
+        quiet.set(true);
+        try {
+            action.run();
+        } finally {
+            quiet.set(previous);
+        }
+    }
+}
+
+// Rolling check history for many components: one long per component id,
+// bit 0 is the newest result and a set bit is a failure. A deep scan is needed
+// when at least k of the last n checks failed (default: any of the window).
+// Lock-free: each id's window is updated with a CAS, so workers recording
+// different components never contend, and reads take no lock at all.
+class CheckHistory {
+    static final CheckHistory DEFAULT = new CheckHistory(5);
+
+    private static final int CHUNK_BITS = 10, CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // Ids are stored in fixed-size chunks so growing never copies live windows
+    private static final class Chunk {
+        final AtomicLongArray failures = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicIntegerArray recorded = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    private final int window;
+    private final long windowMask;
+    // Threshold k in the high half, n in the low half, swapped as one value
+    private volatile int threshold;
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile CheckJournal journal;
+
+    public CheckHistory(int window) {
+        if (window < 1 || window > 64) {
+            throw new IllegalArgumentException("window must be 1..64");
+        }
+        this.window = window;
+        this.windowMask = lowBits(window);
+        this.threshold = 1 << 16 | window;
+    }
+
+    private static long lowBits(int n) {
+        return n == 64 ? -1L : (1L << n) - 1;
+    }
+
+    // Deep scan when at least k of the last n checks failed
+    public void setDeepScanThreshold(int k, int n) {
+        if (n < 1 || n > window || k < 1 || k > n) {
+            throw new IllegalArgumentException("need 1 <= k <= n <= " + window);
+        }
+        threshold = k << 16 | n;
+    }
+
+    public int register() {
+        int id = count.getAndIncrement();
+        if ((id >>> CHUNK_BITS) >= chunks.length) {
+            grow(id >>> CHUNK_BITS);
+        }
+        return id;
+    }
+
+    private synchronized void grow(int chunkIndex) {
+        Chunk[] current = chunks;
+        if (chunkIndex < current.length) {
+            return;
+        }
+        Chunk[] grown = Arrays.copyOf(current, Math.max(chunkIndex + 1, current.length * 2));
+        for (int i = current.length; i < grown.length; i++) {
+            grown[i] = new Chunk();
+        }
+        chunks = grown;
+    }
+
+    private Chunk chunk(int id) {
+        return chunks[id >>> CHUNK_BITS];
+    }
+
+    public void record(int id, boolean passed) {
+        apply(id, passed);
+        CheckJournal target = journal;
+        if (target != null) {
+            target.append(id, System.currentTimeMillis(), passed);
+        }
+    }
+
+    // Every recorded result is also appended to the journal from now on
+    public void setJournal(CheckJournal journal) {
+        this.journal = journal;
+    }
+
+    // Rebuilds windows from a journal without writing back to it; results for
+    // ids not registered yet are skipped. Returns the number of results applied.
+    public long replay(Path journalFile) throws IOException {
+        int registered = count.get();
+        long[] applied = new long[1];
+        CheckJournal.replay(journalFile, (id, timestamp, passed) -> {
+            if (id < registered) {
+                apply(id, passed);
+                applied[0]++;
+            }
+        });
+        return applied[0];
+    }
+
+    private void apply(int id, boolean passed) {
+        Chunk chunk = chunk(id);
+        int slot = id & (CHUNK_SIZE - 1);
+        long bit = passed ? 0 : 1;
+        long prev;
+        do {
+            prev = chunk.failures.get(slot);
+        } while (!chunk.failures.compareAndSet(slot, prev, ((prev << 1) | bit) & windowMask));
+        int seen;
+        while ((seen = chunk.recorded.get(slot)) < window
+                && !chunk.recorded.compareAndSet(slot, seen, seen + 1)) {
+            // lost a race with another record for this id; retry
+        }
+    }
+
+    public int failuresInLast(int id, int n) {
+        Chunk chunk = chunk(id);
+        int slot = id & (CHUNK_SIZE - 1);
+        return Long.bitCount(chunk.failures.get(slot) & lowBits(Math.min(n, chunk.recorded.get(slot))));
+    }
+
+    public boolean needsDeepScan(int id) {
+        int t = threshold;
+        long failures = chunk(id).failures.get(id & (CHUNK_SIZE - 1));
+        return Long.bitCount(failures & lowBits(t & 0xFFFF)) >= t >>> 16;
+    }
+
+    public int recorded(int id) {
+        return chunk(id).recorded.get(id & (CHUNK_SIZE - 1));
+    }
+
+    // Oldest-first, in the same form a List<Boolean> of pass results prints
+    public String describe(int id) {
+        Chunk chunk = chunk(id);
+        int slot = id & (CHUNK_SIZE - 1);
+        long failures = chunk.failures.get(slot);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = chunk.recorded.get(slot) - 1; i >= 0; i--) {
+            sb.append((failures >>> i & 1) == 0);
+            if (i > 0) {
+                sb.append(", ");
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
+
+// Append-only journal of check results: (component id, timestamp, result)
+// records written through a memory-mapped file. Records become durable in
+// groups: a background commit forces the written records to disk every
+// commitMillis and only then advances the committed count in the header,
+// so replay never sees a half-written record. Appends only hold the journal
+// lock long enough to write a record; the msync runs outside it.
+//
+//   long magic, long committedRecords, then 16-byte records:
+//   int componentId, long timestampMillis, byte passed, 3 bytes padding
+class CheckJournal implements AutoCloseable {
+    interface RecordHandler {
+        void accept(int componentId, long timestampMillis, boolean passed);
+    }
+
+    private static final long MAGIC = 0x434845434B4A4E4CL; // "CHECKJNL"
+    private static final int HEADER_BYTES = 16, RECORD_BYTES = 16;
+    private static final long REGION_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer region;
+    // Full regions waiting for the next commit to force them
+    private final List<MappedByteBuffer> retired = new ArrayList<>();
+    private long regionStart;
+    private long appended;
+    private volatile long committed;
+    private boolean closed;
+    // Serializes commits with each other, but not with appends
+    private final Object commitLock = new Object();
+    private final ScheduledExecutorService committer;
+
+    public CheckJournal(Path file, long commitMillis) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            checkExisting(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (header.getLong(0) == MAGIC) {
+            appended = committed = header.getLong(8);
+        } else {
+            header.putLong(0, MAGIC).putLong(8, 0);
+        }
+        long end = HEADER_BYTES + appended * RECORD_BYTES;
+        regionStart = end - end % REGION_BYTES;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_BYTES);
+        committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "check-journal-commit");
+            t.setDaemon(true);
+            return t;
+        });
+        committer.scheduleWithFixedDelay(this::commit, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // A non-empty file must already be a journal; never overwrite anything else
+    private void checkExisting(Path file) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            // keep reading until the header is complete or the file ends
+        }
+        if (head.hasRemaining() || head.getLong(0) != MAGIC) {
+            throw new IOException("Not a check journal: " + file);
+        }
+        long records = head.getLong(8);
+        if (records < 0 || HEADER_BYTES + records * RECORD_BYTES > size) {
+            throw new IOException("Corrupt check journal header: " + file);
+        }
+    }
+
+    public synchronized void append(int componentId, long timestampMillis, boolean passed) {
+        if (closed) {
+            throw new IllegalStateException("Check journal is closed");
+        }
+        long position = HEADER_BYTES + appended * RECORD_BYTES;
+        if (position + RECORD_BYTES > regionStart + REGION_BYTES) {
+            retired.add(region);
+            regionStart += REGION_BYTES;
+            try {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow check journal", e);
+            }
+        }
+        int offset = (int) (position - regionStart);
+        region.putInt(offset, componentId)
+                .putLong(offset + 4, timestampMillis)
+                .put(offset + 12, (byte) (passed ? 1 : 0));
+        appended++;
+    }
+
+    // Forces everything appended so far and publishes it in the header
+    public void commit() {
+        synchronized (commitLock) {
+            long upTo;
+            MappedByteBuffer current;
+            List<MappedByteBuffer> full;
+            synchronized (this) {
+                if (committed == appended) {
+                    return;
+                }
+                upTo = appended;
+                current = region;
+                full = new ArrayList<>(retired);
+                retired.clear();
+            }
+            for (MappedByteBuffer buf : full) {
+                buf.force();
+            }
+            current.force();
+            header.putLong(8, upTo);
+            header.force();
+            committed = upTo;
+        }
+    }
+
+    public long committedRecords() {
+        return committed;
+    }
+
+    public static long replay(Path file, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return 0;
+            }
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (head.getLong(0) != MAGIC) {
+                throw new IOException("Not a check journal: " + file);
+            }
+            long records = head.getLong(8);
+            long done = 0;
+            while (done < records) {
+                long position = HEADER_BYTES + done * RECORD_BYTES;
+                long batch = Math.min(records - done, (REGION_BYTES - HEADER_BYTES) / RECORD_BYTES);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, batch * RECORD_BYTES);
+                for (int i = 0; i < batch; i++) {
+                    int offset = i * RECORD_BYTES;
+                    handler.accept(buf.getInt(offset), buf.getLong(offset + 4), buf.get(offset + 12) != 0);
+                }
+                done += batch;
+            }
+            return records;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            committer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        synchronized (this) {
+            closed = true;
+        }
+        // Regions are mapped in 64 MB steps; give back the unused tail
+        channel.truncate(HEADER_BYTES + committed * RECORD_BYTES);
+        channel.close();
+    }
+}
 
 // Component Interface
 interface NetworkComponent {
@@ -18,10 +406,17 @@ interface NetworkComponent {
 // Leaf: Client Computer
 class ClientComputer implements NetworkComponent {
     private String name;
-    private Queue<Boolean> lastFiveChecks = new LinkedList<>();
+    private final CheckHistory history;
+    private final int historyId;
 
     public ClientComputer(String name) {
+        this(name, CheckHistory.DEFAULT);
+    }
+
+    public ClientComputer(String name, CheckHistory history) {
         this.name = name;
+        this.history = history;
+        this.historyId = history.register();
     }
 
     @Override
@@ -31,40 +426,41 @@ class ClientComputer implements NetworkComponent {
 
     @Override
     public void recordCheckResult(boolean passed) {
-        if (lastFiveChecks.size() >= 5) {
-            lastFiveChecks.poll(); // Remove oldest result
-        }
-        lastFiveChecks.offer(passed);
+        history.record(historyId, passed);
 
-        System.out.println(name + " check result: " + (passed ? "PASSED" : "FAILED"));
-        System.out.println(name + " last " + lastFiveChecks.size() + " checks: " + lastFiveChecks);
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(name + " check result: " + (passed ? "PASSED" : "FAILED"));
+            SecurityLog.println(name + " last " + history.recorded(historyId) + " checks: "
+                    + history.describe(historyId));
+        }
     }
 
     @Override
     public boolean needsDeepScan() {
-        // Needs deep scan if any of the last 5 checks failed
-        for (Boolean result : lastFiveChecks) {
-            if (!result) {
-                return true;
-            }
-        }
-        return false;
+        // Needs deep scan if enough of the recent checks failed
+        return history.needsDeepScan(historyId);
     }
 
     // Implement the basic checks for the leaf node
     @Override
     public void scanForMalware() {
-        System.out.println("Client " + name + ": Scanning for malware.");
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.SCAN.clientLine(name));
+        }
     }
 
     @Override
     public void updateAntivirus() {
-        System.out.println("Client " + name + ": Updating antivirus software.");
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.UPDATE.clientLine(name));
+        }
     }
 
     @Override
     public void applySecurityPatches() {
-        System.out.println("Client " + name + ": Applying security patches.");
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.PATCH.clientLine(name));
+        }
     }
 
 }
@@ -73,10 +469,17 @@ class ClientComputer implements NetworkComponent {
 abstract class AbstractServer implements NetworkComponent {
     protected String name;
     protected List<NetworkComponent> children = new ArrayList<>();
-    private Queue<Boolean> lastFiveChecks = new LinkedList<>();
+    private final CheckHistory history;
+    private final int historyId;
 
     public AbstractServer(String name) {
+        this(name, CheckHistory.DEFAULT);
+    }
+
+    public AbstractServer(String name, CheckHistory history) {
         this.name = name;
+        this.history = history;
+        this.historyId = history.register();
     }
 
     public void add(NetworkComponent c) {
@@ -90,28 +493,23 @@ abstract class AbstractServer implements NetworkComponent {
 
     @Override
     public void recordCheckResult(boolean passed) {
-        if (lastFiveChecks.size() >= 5) {
-            lastFiveChecks.poll();
-        }
-        lastFiveChecks.offer(passed);
+        history.record(historyId, passed);
 
-        System.out.println(name + " check result: " + (passed ? "PASSED" : "FAILED"));
-        System.out.println(name + " last " + lastFiveChecks.size() + " checks: " + lastFiveChecks);
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(name + " check result: " + (passed ? "PASSED" : "FAILED"));
+            SecurityLog.println(name + " last " + history.recorded(historyId) + " checks: "
+                    + history.describe(historyId));
+        }
     }
 
     @Override
     public boolean needsDeepScan() {
-        for (Boolean result : lastFiveChecks) {
-            if (!result) {
-                return true;
-            }
-        }
-        return false;
+        return history.needsDeepScan(historyId);
     }
 
     @Override
     public void scanForMalware() {
-        System.out.println("Server " + name + ": Initiating malware scan");
+        beginMalwareScan();
         for (NetworkComponent c : children) {
             c.scanForMalware();
         }
@@ -119,7 +517,7 @@ abstract class AbstractServer implements NetworkComponent {
 
     @Override
     public void updateAntivirus() {
-        System.out.println("Server " + name + ": Initiating antiVirus update");
+        beginAntivirusUpdate();
         for (NetworkComponent c : children) {
             c.updateAntivirus();
         }
@@ -127,23 +525,51 @@ abstract class AbstractServer implements NetworkComponent {
 
     @Override
     public void applySecurityPatches() {
-        System.out.println("Server " + name + ": Initiating security patch");
+        beginSecurityPatch();
         for (NetworkComponent c : children) {
             c.applySecurityPatches();
         }
     }
+
+    // The server's own part of each operation, without visiting its children;
+    // a parallel sweep runs these and fans the children out itself
+    protected void beginMalwareScan() {
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.SCAN.serverLine(name));
+        }
+    }
+
+    protected void beginAntivirusUpdate() {
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.UPDATE.serverLine(name));
+        }
+    }
+
+    protected void beginSecurityPatch() {
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(SweepOperation.PATCH.serverLine(name));
+        }
+    }
 }
 
 class MainServer extends AbstractServer {
     public MainServer(String name) {
         super(name);
     }
+
+    public MainServer(String name, CheckHistory history) {
+        super(name, history);
+    }
 }
 
 class SubServer extends AbstractServer {
     public SubServer(String name) {
         super(name);
     }
+
+    public SubServer(String name, CheckHistory history) {
+        super(name, history);
+    }
 }
 
 abstract class SecurityDecorator implements NetworkComponent {
@@ -192,7 +618,9 @@ class EncryptionCheckDecorator extends SecurityDecorator {
 
     @Override
     public void scanForMalware() {
-        System.out.println(component.getName() + " Running Encryption Check");
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(component.getName() + " Running Encryption Check");
+        }
         super.scanForMalware();
     }
 }
@@ -205,11 +633,670 @@ class DeepScanCheckDecorator extends SecurityDecorator {
 
     @Override
     public void scanForMalware() {
-        System.out.println(component.getName() + " Running Deep Scan");
+        if (SecurityLog.isEnabled()) {
+            SecurityLog.println(component.getName() + " Running Deep Scan");
+        }
         super.scanForMalware();
     }
 }
 
+// One flat decorator replacing a DeepScan(Encryption(component)) stack; it logs
+// the same lines in the same order without a chain of wrapper calls
+final class ScanPlan extends SecurityDecorator {
+    final boolean encryption, deepScan;
+
+    public ScanPlan(NetworkComponent c, boolean encryption, boolean deepScan) {
+        super(c);
+        this.encryption = encryption;
+        this.deepScan = deepScan;
+    }
+
+    @Override
+    public void scanForMalware() {
+        if (SecurityLog.isEnabled()) {
+            if (deepScan) {
+                SecurityLog.println(component.getName() + " Running Deep Scan");
+            }
+            if (encryption) {
+                SecurityLog.println(component.getName() + " Running Encryption Check");
+            }
+        }
+        component.scanForMalware();
+    }
+}
+
+// Operations a sweep can run over the network tree
+enum SweepOperation {
+    SCAN("malware scan", "Scanning for malware.", "scanForMalware") {
+        @Override
+        void apply(NetworkComponent c) {
+            c.scanForMalware();
+        }
+
+        @Override
+        void begin(AbstractServer s) {
+            s.beginMalwareScan();
+        }
+    },
+    UPDATE("antiVirus update", "Updating antivirus software.", "updateAntivirus") {
+        @Override
+        void apply(NetworkComponent c) {
+            c.updateAntivirus();
+        }
+
+        @Override
+        void begin(AbstractServer s) {
+            s.beginAntivirusUpdate();
+        }
+    },
+    PATCH("security patch", "Applying security patches.", "applySecurityPatches") {
+        @Override
+        void apply(NetworkComponent c) {
+            c.applySecurityPatches();
+        }
+
+        @Override
+        void begin(AbstractServer s) {
+            s.beginSecurityPatch();
+        }
+    };
+
+    private final String label, clientAction;
+    // Whether a server class replaces the whole operation instead of its begin hook
+    private final ClassValue<Boolean> overridden;
+
+    SweepOperation(String label, String clientAction, String method) {
+        this.label = label;
+        this.clientAction = clientAction;
+        this.overridden = new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                try {
+                    return type.getMethod(method).getDeclaringClass() != AbstractServer.class;
+                } catch (NoSuchMethodException e) {
+                    return true;
+                }
+            }
+        };
+    }
+
+    // Runs the operation on a component and everything below it
+    abstract void apply(NetworkComponent c);
+
+    // Runs only the server's own part of the operation
+    abstract void begin(AbstractServer s);
+
+    // True if the sweep may run the server's part and fan out its children itself
+    boolean splits(NetworkComponent c) {
+        return c instanceof AbstractServer && !overridden.get(c.getClass());
+    }
+
+    String serverLine(String serverName) {
+        return "Server " + serverName + ": Initiating " + label;
+    }
+
+    String clientLine(String clientName) {
+        return "Client " + clientName + ": " + clientAction;
+    }
+}
+
+// Aggregated outcome of a sweep; log lines are in the same order a sequential
+// walk would print them
+class SweepResult {
+    final int servers, leaves;
+    final List<String> log;
+
+    SweepResult(int servers, int leaves, List<String> log) {
+        this.servers = servers;
+        this.leaves = leaves;
+        this.log = log;
+    }
+}
+
+// Parallel traversal of the AbstractServer composite: every child server becomes
+// a fork-join task, runs of leaf children are batched into one task, and
+// results are joined back in child order. Each component's own operation does
+// the work, so the output matches a sequential walk. A server class that
+// overrides the operation itself is run as one sequential subtree.
+class ParallelSweep {
+    private static final int LEAF_BATCH = 64;
+
+    private final ForkJoinPool pool;
+
+    public ParallelSweep(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public SweepResult run(NetworkComponent root, SweepOperation operation) {
+        return pool.invoke(new NodeTask(List.of(root), operation));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class NodeTask extends RecursiveTask<SweepResult> {
+        private static final long serialVersionUID = 1L;
+
+        // A single server to fan out, or a run of components to sweep in order
+        private final List<NetworkComponent> nodes;
+        private final SweepOperation operation;
+
+        NodeTask(List<NetworkComponent> nodes, SweepOperation operation) {
+            this.nodes = nodes;
+            this.operation = operation;
+        }
+
+        @Override
+        protected SweepResult compute() {
+            if (nodes.size() == 1 && operation.splits(nodes.get(0))) {
+                return fanOut((AbstractServer) nodes.get(0));
+            }
+            int[] counts = new int[2];
+            List<String> log = SecurityLog.captured(() -> {
+                for (NetworkComponent node : nodes) {
+                    operation.apply(node);
+                    count(node, counts);
+                }
+            });
+            return new SweepResult(counts[0], counts[1], log);
+        }
+
+        private SweepResult fanOut(AbstractServer server) {
+            // The server's own part runs before its children, as in the sequential walk
+            List<String> log = new ArrayList<>(SecurityLog.captured(() -> operation.begin(server)));
+            List<NodeTask> tasks = new ArrayList<>();
+            List<NetworkComponent> run = new ArrayList<>();
+            for (NetworkComponent child : server.children) {
+                if (operation.splits(child)) {
+                    flush(run, tasks);
+                    tasks.add(new NodeTask(List.of(child), operation));
+                } else {
+                    run.add(child);
+                    if (run.size() == LEAF_BATCH) {
+                        flush(run, tasks);
+                    }
+                }
+            }
+            flush(run, tasks);
+            invokeAll(tasks);
+
+            int servers = 1, leaves = 0;
+            for (NodeTask task : tasks) {
+                SweepResult child = task.join();
+                servers += child.servers;
+                leaves += child.leaves;
+                log.addAll(child.log);
+            }
+            return new SweepResult(servers, leaves, log);
+        }
+
+        private void flush(List<NetworkComponent> run, List<NodeTask> tasks) {
+            if (!run.isEmpty()) {
+                tasks.add(new NodeTask(new ArrayList<>(run), operation));
+                run.clear();
+            }
+        }
+
+        // Servers in counts[0], leaves and decorated components in counts[1]
+        private static void count(NetworkComponent node, int[] counts) {
+            if (node instanceof AbstractServer) {
+                counts[0]++;
+                for (NetworkComponent child : ((AbstractServer) node).children) {
+                    count(child, counts);
+                }
+            } else {
+                counts[1]++;
+            }
+        }
+    }
+}
+
+// Compact network topology in compressed sparse row form: the children of node
+// i are childIndex[childStart[i] .. childStart[i + 1]), plus one byte of type and
+// one byte of flags per node. Node 0 is the root. For large simulated fleets this
+// replaces a million component objects and ArrayLists with a handful of arrays.
+//
+// Topology file: one node per line, "<type> <parentIndex> [name]", where type is
+// MAIN, SUB or CLIENT and every parent appears before its children (root: -1).
+class CompactTopology {
+    static final byte MAIN = 0, SUB = 1, CLIENT = 2;
+    static final byte SENSITIVE = 1, NEEDS_DEEP_SCAN = 2;
+
+    private final int[] childStart;
+    private final int[] childIndex;
+    private final byte[] types;
+    private final byte[] flags;
+    private final String[] names; // null entries get a generated name
+
+    private CompactTopology(byte[] types, int[] parents, String[] names) {
+        int n = types.length;
+        this.types = types;
+        this.flags = new byte[n];
+        this.names = names;
+        childStart = new int[n + 1];
+        for (int i = 1; i < n; i++) {
+            childStart[parents[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        childIndex = new int[Math.max(0, n - 1)];
+        int[] next = Arrays.copyOf(childStart, n);
+        for (int i = 1; i < n; i++) {
+            childIndex[next[parents[i]]++] = i;
+        }
+    }
+
+    public static CompactTopology load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        int n = lines.size();
+        if (n == 0) {
+            throw new IOException("Empty topology file: " + file);
+        }
+        byte[] types = new byte[n];
+        int[] parents = new int[n];
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            String[] parts = lines.get(i).trim().split("\\s+", 3);
+            if (parts.length < 2) {
+                throw new IOException("Line " + (i + 1) + ": expected a node type and a parent index");
+            }
+            types[i] = parseType(parts[0]);
+            try {
+                parents[i] = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + (i + 1) + ": bad parent index " + parts[1]);
+            }
+            if ((i == 0) != (parents[i] < 0) || parents[i] >= i) {
+                throw new IOException("Line " + (i + 1) + ": parent must precede its children");
+            }
+            if (i > 0 && types[parents[i]] == CLIENT) {
+                throw new IOException("Line " + (i + 1) + ": a client cannot have children");
+            }
+            names[i] = parts.length > 2 ? parts[2] : null;
+        }
+        return new CompactTopology(types, parents, names);
+    }
+
+    // One main server, subServers sub-servers, clientsPerSub clients under each
+    public static CompactTopology generate(int subServers, int clientsPerSub) {
+        int n = 1 + subServers * (1 + clientsPerSub);
+        byte[] types = new byte[n];
+        int[] parents = new int[n];
+        types[0] = MAIN;
+        parents[0] = -1;
+        int i = 1;
+        for (int s = 0; s < subServers; s++) {
+            int sub = i++;
+            types[sub] = SUB;
+            for (int c = 0; c < clientsPerSub; c++, i++) {
+                types[i] = CLIENT;
+                parents[i] = sub;
+            }
+        }
+        return new CompactTopology(types, parents, new String[n]);
+    }
+
+    // Snapshot of an object tree; decorated components are treated as clients
+    public static CompactTopology fromTree(AbstractServer root) {
+        List<NetworkComponent> nodes = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        nodes.add(root);
+        parents.add(-1);
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) instanceof AbstractServer) {
+                for (NetworkComponent child : ((AbstractServer) nodes.get(i)).children) {
+                    nodes.add(child);
+                    parents.add(i);
+                }
+            }
+        }
+        int n = nodes.size();
+        byte[] types = new byte[n];
+        int[] parentArray = new int[n];
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            NetworkComponent node = nodes.get(i);
+            types[i] = node instanceof MainServer ? MAIN : node instanceof AbstractServer ? SUB : CLIENT;
+            parentArray[i] = parents.get(i);
+            names[i] = node.getName();
+        }
+        CompactTopology topology = new CompactTopology(types, parentArray, names);
+        for (int i = 0; i < n; i++) {
+            topology.copyDecoration(i, nodes.get(i));
+        }
+        return topology;
+    }
+
+    // Keeps the checks a decorator chain adds so sweep logs them like the tree does
+    private void copyDecoration(int node, NetworkComponent component) {
+        while (component instanceof SecurityDecorator) {
+            if (component instanceof ScanPlan) {
+                ScanPlan plan = (ScanPlan) component;
+                setFlag(node, SENSITIVE, plan.encryption || hasFlag(node, SENSITIVE));
+                setFlag(node, NEEDS_DEEP_SCAN, plan.deepScan || hasFlag(node, NEEDS_DEEP_SCAN));
+            } else if (component instanceof EncryptionCheckDecorator) {
+                setFlag(node, SENSITIVE, true);
+            } else if (component instanceof DeepScanCheckDecorator) {
+                setFlag(node, NEEDS_DEEP_SCAN, true);
+            }
+            component = ((SecurityDecorator) component).component;
+        }
+    }
+
+    private static byte parseType(String type) throws IOException {
+        switch (type) {
+            case "MAIN":
+                return MAIN;
+            case "SUB":
+                return SUB;
+            case "CLIENT":
+                return CLIENT;
+            default:
+                throw new IOException("Unknown node type: " + type);
+        }
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public byte type(int node) {
+        return types[node];
+    }
+
+    public boolean hasFlag(int node, byte flag) {
+        return (flags[node] & flag) != 0;
+    }
+
+    public void setFlag(int node, byte flag, boolean on) {
+        flags[node] = (byte) (on ? flags[node] | flag : flags[node] & ~flag);
+    }
+
+    public String name(int node) {
+        String name = names[node];
+        return name != null ? name : (types[node] == CLIENT ? "client" : "server") + node;
+    }
+
+    public long estimatedBytes() {
+        return 4L * (childStart.length + childIndex.length) + 2L * types.length;
+    }
+
+    // Same depth-first order and log lines as AbstractServer's sequential walk
+    public void sweep(SweepOperation operation) {
+        int[] stack = new int[size()];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (operation == SweepOperation.SCAN && SecurityLog.isEnabled()) {
+                if (hasFlag(node, NEEDS_DEEP_SCAN)) {
+                    SecurityLog.println(name(node) + " Running Deep Scan");
+                }
+                if (hasFlag(node, SENSITIVE)) {
+                    SecurityLog.println(name(node) + " Running Encryption Check");
+                }
+            }
+            if (types[node] == CLIENT) {
+                SecurityLog.println(operation.clientLine(name(node)));
+                continue;
+            }
+            SecurityLog.println(operation.serverLine(name(node)));
+            for (int c = childStart[node + 1] - 1; c >= childStart[node]; c--) {
+                stack[top++] = childIndex[c];
+            }
+        }
+    }
+
+    // Counts clients reachable from the root without logging; used for comparisons
+    public int countClients() {
+        int[] stack = new int[size()];
+        int top = 0, clients = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (types[node] == CLIENT) {
+                clients++;
+            }
+            for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+                stack[top++] = childIndex[c];
+            }
+        }
+        return clients;
+    }
+}
+
+// Memory and traversal-time comparison of the object tree and CompactTopology
+class TopologyComparison {
+    static int countClients(NetworkComponent node) {
+        if (!(node instanceof AbstractServer)) {
+            return 1;
+        }
+        int clients = 0;
+        for (NetworkComponent child : ((AbstractServer) node).children) {
+            clients += countClients(child);
+        }
+        return clients;
+    }
+
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        int subServers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int clientsPerSub = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        long before = usedMemory();
+        CheckHistory history = new CheckHistory(5);
+        MainServer root = new MainServer("main", history);
+        for (int s = 0; s < subServers; s++) {
+            SubServer sub = new SubServer("sub" + s, history);
+            for (int c = 0; c < clientsPerSub; c++) {
+                sub.add(new ClientComputer("client" + c, history));
+            }
+            root.add(sub);
+        }
+        long treeBytes = usedMemory() - before;
+
+        before = usedMemory();
+        CompactTopology topology = CompactTopology.generate(subServers, clientsPerSub);
+        long csrBytes = usedMemory() - before;
+
+        for (int warmup = 0; warmup < 5; warmup++) {
+            countClients(root);
+            topology.countClients();
+        }
+        long start = System.nanoTime();
+        int treeClients = countClients(root);
+        long treeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int csrClients = topology.countClients();
+        long csrNanos = System.nanoTime() - start;
+
+        System.out.println("Nodes: " + topology.size());
+        System.out.println("Object tree: ~" + treeBytes / 1024 + " KB, walk " + treeNanos / 1000
+                + " us (" + treeClients + " clients)");
+        System.out.println("CSR topology: ~" + csrBytes / 1024 + " KB (" + topology.estimatedBytes() / 1024
+                + " KB of arrays), walk " + csrNanos / 1000 + " us (" + csrClients + " clients)");
+    }
+}
+
+// Outcome of a FleetSimulator run
+class SimulationReport {
+    final int components, rounds, workers;
+    final long elapsedNanos, allocatedBytes, deepScans, failures;
+
+    SimulationReport(int components, int rounds, int workers, long elapsedNanos, long allocatedBytes,
+            long deepScans, long failures) {
+        this.components = components;
+        this.rounds = rounds;
+        this.workers = workers;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.deepScans = deepScans;
+        this.failures = failures;
+    }
+
+    public double roundsPerSecond() {
+        return rounds / (elapsedNanos / 1e9);
+    }
+
+    public double allocatedMegabytesPerSecond() {
+        return allocatedBytes / 1e6 / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d components, %d rounds on %d workers: %.1f rounds/s, %.1f MB/s allocated, "
+                + "%d deep scans, %d failed checks", components, rounds, workers, roundsPerSecond(),
+                allocatedMegabytesPerSecond(), deepScans, failures);
+    }
+}
+
+// Deterministic load simulator for the security manager. Builds a tree of the
+// given depth and fan-out and gives every component its own SplittableRandom
+// stream split from one seed, so check outcomes, decorations and counts are the
+// same for a seed no matter how many workers run the rounds.
+class FleetSimulator {
+    private final List<NetworkComponent> components = new ArrayList<>();
+    private final List<SplittableRandom> streams = new ArrayList<>();
+    private final boolean[] sensitive;
+    private final double failureRate;
+    private final MainServer root;
+
+    public FleetSimulator(long seed, int depth, int fanOut, double sensitivityRatio, double failureRate) {
+        this.failureRate = failureRate;
+        SplittableRandom seedStream = new SplittableRandom(seed);
+        CheckHistory history = new CheckHistory(5);
+        root = new MainServer("main", history);
+        add(root, seedStream);
+        List<AbstractServer> level = List.of(root);
+        for (int d = 1; d <= depth; d++) {
+            List<AbstractServer> next = new ArrayList<>();
+            for (AbstractServer parent : level) {
+                for (int f = 0; f < fanOut; f++) {
+                    String name = parent.getName() + "." + f;
+                    NetworkComponent child;
+                    if (d == depth) {
+                        child = new ClientComputer(name, history);
+                    } else {
+                        SubServer sub = new SubServer(name, history);
+                        next.add(sub);
+                        child = sub;
+                    }
+                    parent.add(child);
+                    add(child, seedStream);
+                }
+            }
+            level = next;
+        }
+        sensitive = new boolean[components.size()];
+        for (int i = 0; i < sensitive.length; i++) {
+            sensitive[i] = streams.get(i).nextDouble() < sensitivityRatio;
+        }
+    }
+
+    private void add(NetworkComponent component, SplittableRandom seedStream) {
+        components.add(component);
+        streams.add(seedStream.split());
+    }
+
+    public MainServer root() {
+        return root;
+    }
+
+    public SimulationReport run(int rounds, int workers) throws InterruptedException {
+        int n = components.size();
+        ScanPlan[] plans = new ScanPlan[n];
+        long[] deepScans = new long[workers], failures = new long[workers], allocated = new long[workers];
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        try {
+            for (int round = 0; round < rounds; round++) {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int w = 0; w < workers; w++) {
+                    int worker = w;
+                    tasks.add(() -> {
+                        SecurityLog.quietly(() -> runBlock(worker, workers, plans, deepScans, failures, allocated));
+                        return null;
+                    });
+                }
+                for (Future<Void> done : pool.invokeAll(tasks)) {
+                    try {
+                        done.get();
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Simulation worker failed", e.getCause());
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new SimulationReport(n, rounds, workers, elapsed, Arrays.stream(allocated).sum(),
+                Arrays.stream(deepScans).sum(), Arrays.stream(failures).sum());
+    }
+
+    // One worker's share of a round: worker w owns one contiguous block of
+    // components, so workers touch disjoint stretches of the shared history
+    private void runBlock(int worker, int workers, ScanPlan[] plans, long[] deepScans, long[] failures,
+            long[] allocated) {
+        long allocatedBefore = threadAllocatedBytes();
+        int n = components.size();
+        int from = (int) ((long) n * worker / workers);
+        int to = (int) ((long) n * (worker + 1) / workers);
+        for (int i = from; i < to; i++) {
+            NetworkComponent component = components.get(i);
+            boolean passed = streams.get(i).nextDouble() >= failureRate;
+            if (!passed) {
+                failures[worker]++;
+            }
+            component.recordCheckResult(passed);
+            boolean deepScan = component.needsDeepScan();
+            ScanPlan plan = plans[i];
+            if (plan == null || plan.encryption != sensitive[i] || plan.deepScan != deepScan) {
+                plan = new ScanPlan(component, sensitive[i], deepScan);
+                plans[i] = plan;
+            }
+            if (deepScan) {
+                deepScans[worker]++;
+            }
+            if (!(component instanceof AbstractServer)) {
+                plan.scanForMalware();
+            }
+        }
+        allocated[worker] += threadAllocatedBytes() - allocatedBefore;
+    }
+
+    // Bytes allocated by the current thread, or 0 when the JVM cannot tell
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    // Args: seed depth fanOut sensitivityRatio rounds workers
+    public static void main(String[] args) throws InterruptedException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int fanOut = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        double sensitivityRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.2;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int workers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        FleetSimulator simulator = new FleetSimulator(seed, depth, fanOut, sensitivityRatio, 0.1);
+        System.out.println(simulator.run(rounds, workers));
+    }
+}
+
 public class SecurityManagerDemo {
     private static Random random = new Random();
 
@@ -218,23 +1305,30 @@ public class SecurityManagerDemo {
         return random.nextBoolean();
     }
 
+    // Decoration plan per component, reused until its needs change
+    private static Map<NetworkComponent, ScanPlan> plans = new IdentityHashMap<>();
+
     // Utility function to apply decorators based on component needs
     private static NetworkComponent applyDecorators(NetworkComponent component, boolean hasSensitiveData) {
-        NetworkComponent decorated = component;
+        boolean deepScan = component.needsDeepScan();
+        ScanPlan plan = plans.get(component);
+        if (plan != null && plan.encryption == hasSensitiveData && plan.deepScan == deepScan) {
+            return plan;
+        }
 
         // Apply encryption check for components with sensitive data
         if (hasSensitiveData) {
             System.out.println("Applying Encryption Check decorator to " + component.getName());
-            decorated = new EncryptionCheckDecorator(decorated);
         }
 
         // Apply deep scan for components that failed recent checks
-        if (component.needsDeepScan()) {
+        if (deepScan) {
             System.out.println("Applying Deep Scan decorator to " + component.getName());
-            decorated = new DeepScanCheckDecorator(decorated);
         }
 
-        return decorated;
+        plan = new ScanPlan(component, hasSensitiveData, deepScan);
+        plans.put(component, plan);
+        return plan;
     }
 
     public static void main(String[] args) {
@@ -273,5 +1367,34 @@ public class SecurityManagerDemo {
             // decoratedClient3.scanForMalware();
             System.out.println("\n");
         }
+
+        // Parallel sweep over the same tree; output keeps per-subtree order
+        ParallelSweep sweep = new ParallelSweep(4);
+        SweepResult result = sweep.run(mainServer, SweepOperation.SCAN);
+        result.log.forEach(System.out::println);
+        System.out.println("Swept " + result.servers + " servers and " + result.leaves + " clients");
+        sweep.shutdown();
+
+        // Same sweep over a compact snapshot of the tree
+        CompactTopology.fromTree(mainServer).sweep(SweepOperation.SCAN);
+
+        // Journal check results, then rebuild the windows from it as after a restart
+        try {
+            Path journalFile = Files.createTempFile("checks", ".journal");
+            CheckHistory journaled = new CheckHistory(5);
+            ClientComputer client5 = new ClientComputer("client5", journaled);
+            try (CheckJournal journal = new CheckJournal(journalFile, 10)) {
+                journaled.setJournal(journal);
+                client5.recordCheckResult(false);
+                client5.recordCheckResult(true);
+            }
+            CheckHistory restarted = new CheckHistory(5);
+            ClientComputer restartedClient5 = new ClientComputer("client5", restarted);
+            System.out.println("Replayed " + restarted.replay(journalFile) + " results, client5 needs deep scan: "
+                    + restartedClient5.needsDeepScan());
+            Files.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            System.out.println("Journal demo failed: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
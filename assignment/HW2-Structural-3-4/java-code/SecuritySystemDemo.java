@@ -1,30 +1,521 @@
 import java.util.ArrayList;
-import java.util.List;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.Map;
-import java.util.Queue;
-import java.util.LinkedList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hands out stable integer ids when components are created, so lookups on the
+// check path index arrays instead of parsing decorated names. Names need not be
+// unique; several components may share one.
+class ComponentRegistry {
+    private static final AtomicInteger nextId = new AtomicInteger();
+    private static String[] names = new String[64];
+
+    static synchronized int register(String name) {
+        int id = nextId.get();
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+        }
+        names[id] = name;
+        nextId.set(id + 1); // publish only once the name is stored
+        return id;
+    }
+
+    static synchronized String nameOf(int id) {
+        return names[id];
+    }
+
+    static int count() {
+        return nextId.get();
+    }
+}
 
 // Component interface
 interface NetworkComponent {
     boolean performSecurityCheck();
 
     String getName();
+
+    int getId();
+
+    // Re-checks only components marked dirty since their last incremental check,
+    // reusing cached results for clean subtrees
+    boolean performIncrementalCheck();
+
+    // Flags this component and all its ancestors for the next incremental check
+    void markDirty();
+
+    void addParent(NetworkComponent parent);
+
+    // Non-blocking check: leaves run on the context's threads under its
+    // per-node timeout and the bulkhead of their sub-server
+    CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context);
+
+    // Quiet, timed check; children's results are streamed to the sink as they finish
+    CheckResult performStructuredCheck(CheckResultSink sink);
+
+    // Health-gate sweep: full, fail-fast or sampled, as the policy says
+    boolean performSweep(SweepPolicy policy);
+}
+
+// How MainServer/SubServer sweeps visit their children. FULL checks everything;
+// FAIL_FAST stops at the first failing child, since the answer is then known;
+// SAMPLED checks only a fraction of each sub-server's children and tracks how
+// many sampled checks failed, for a confidence bound on the fleet failure rate.
+class SweepPolicy {
+    enum Mode {
+        FULL, FAIL_FAST, SAMPLED
+    }
+
+    final Mode mode;
+    private final double sampleFraction;
+    private final SplittableRandom random;
+    private int sampled, sampledFailures, skipped;
+    private int serverSweeps; // bumped by every server that sweeps its children
+
+    private SweepPolicy(Mode mode, double sampleFraction, long seed) {
+        this.mode = mode;
+        this.sampleFraction = sampleFraction;
+        this.random = new SplittableRandom(seed);
+    }
+
+    static SweepPolicy full() {
+        return new SweepPolicy(Mode.FULL, 1.0, 0);
+    }
+
+    static SweepPolicy failFast() {
+        return new SweepPolicy(Mode.FAIL_FAST, 1.0, 0);
+    }
+
+    static SweepPolicy sampled(double fraction, long seed) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be in (0, 1]");
+        }
+        return new SweepPolicy(Mode.SAMPLED, fraction, seed);
+    }
+
+    boolean sweep(List<NetworkComponent> children, boolean sampleChildren) {
+        serverSweeps++;
+        if (mode == Mode.SAMPLED && sampleChildren) {
+            return sweepSample(children);
+        }
+        boolean allPassed = true;
+        for (int i = 0; i < children.size(); i++) {
+            if (!children.get(i).performSweep(this)) {
+                allPassed = false;
+                if (mode == Mode.FAIL_FAST) {
+                    skipped += children.size() - i - 1;
+                    break;
+                }
+            }
+        }
+        return allPassed;
+    }
+
+    private boolean sweepSample(List<NetworkComponent> children) {
+        int n = children.size();
+        int k = Math.min(n, (int) Math.ceil(sampleFraction * n));
+        // Partial Fisher-Yates: the first k slots become a uniform sample
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        Arrays.sort(order, 0, k);
+        boolean allPassed = true;
+        for (int i = 0; i < k; i++) {
+            int servers = serverSweeps;
+            boolean passed = children.get(order[i]).performSweep(this);
+            if (!passed) {
+                allPassed = false;
+            }
+            // A child that swept children of its own is a server; its leaves
+            // were already counted, so only leaf results are samples here
+            if (serverSweeps == servers) {
+                sampled++;
+                if (!passed) {
+                    sampledFailures++;
+                }
+            }
+        }
+        skipped += n - k;
+        return allPassed;
+    }
+
+    public int sampled() {
+        return sampled;
+    }
+
+    public int sampledFailures() {
+        return sampledFailures;
+    }
+
+    public int skipped() {
+        return skipped;
+    }
+
+    // Wilson score upper bound on the failure rate of the sampled population
+    // (z = 1.96 for 95% confidence)
+    public double failureRateUpperBound(double z) {
+        if (sampled == 0) {
+            return 1.0;
+        }
+        double n = sampled, p = sampledFailures / n, z2 = z * z;
+        double centre = p + z2 / (2 * n);
+        double margin = z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n));
+        return Math.min(1.0, (centre + margin) / (1 + z2 / n));
+    }
+}
+
+enum CheckType {
+    BASIC, ENCRYPTION, DEEP_SCAN
+}
+
+// One node of a structured check: which checks ran, which failed, how long each
+// took, and the results of the node's children
+class CheckResult {
+    private static final int TYPES = CheckType.values().length;
+
+    final int nodeId;
+    final String name;
+    final long startNanos;
+    private long endNanos;
+    private int ran, failed; // bit per CheckType ordinal
+    private final long[] checkNanos = new long[TYPES];
+    private boolean passed = true;
+    private final List<CheckResult> children = new ArrayList<>();
+
+    CheckResult(int nodeId, String name) {
+        this.nodeId = nodeId;
+        this.name = name;
+        this.startNanos = System.nanoTime();
+    }
+
+    // Runs a structured check from root, handing every node to the sink with
+    // the root last
+    static CheckResult run(NetworkComponent root, CheckResultSink sink) {
+        CheckResult result = root.performStructuredCheck(sink);
+        sink.accept(result);
+        return result;
+    }
+
+    void record(CheckType type, boolean checkPassed, long start, long end) {
+        ran |= 1 << type.ordinal();
+        if (!checkPassed) {
+            failed |= 1 << type.ordinal();
+            passed = false;
+        }
+        checkNanos[type.ordinal()] = end - start;
+    }
+
+    void addChild(CheckResult child) {
+        children.add(child);
+        passed &= child.passed();
+    }
+
+    CheckResult finish() {
+        endNanos = System.nanoTime();
+        return this;
+    }
+
+    public boolean passed() {
+        return passed;
+    }
+
+    public boolean ran(CheckType type) {
+        return (ran & 1 << type.ordinal()) != 0;
+    }
+
+    public boolean passed(CheckType type) {
+        return ran(type) && (failed & 1 << type.ordinal()) == 0;
+    }
+
+    public long nanos(CheckType type) {
+        return checkNanos[type.ordinal()];
+    }
+
+    public long endNanos() {
+        return endNanos;
+    }
+
+    public List<CheckResult> children() {
+        return children;
+    }
+}
+
+// Receives every finished node result, children before their parent. Components
+// pass their children's results; CheckResult.run also delivers the root, last.
+interface CheckResultSink {
+    void accept(CheckResult result);
+}
+
+// Per-check-type latency histograms with power-of-two nanosecond buckets
+class LatencyHistogramSink implements CheckResultSink {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray[] histograms = new AtomicLongArray[CheckType.values().length];
+
+    LatencyHistogramSink() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    @Override
+    public void accept(CheckResult result) {
+        for (CheckType type : CheckType.values()) {
+            if (result.ran(type)) {
+                long nanos = Math.max(1, result.nanos(type));
+                histograms[type.ordinal()].incrementAndGet(63 - Long.numberOfLeadingZeros(nanos));
+            }
+        }
+    }
+
+    public long count(CheckType type) {
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += histograms[type.ordinal()].get(b);
+        }
+        return count;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    public long percentileNanos(CheckType type, double percentile) {
+        long total = count(type);
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histograms[type.ordinal()].get(b);
+            if (seen >= rank && seen > 0) {
+                return b == 63 ? Long.MAX_VALUE : (1L << (b + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (CheckType type : CheckType.values()) {
+            sb.append(type).append(": n=").append(count(type))
+                    .append(" p50<=").append(percentileNanos(type, 50)).append("ns")
+                    .append(" p99<=").append(percentileNanos(type, 99)).append("ns\n");
+        }
+        return sb.toString();
+    }
+}
+
+// Runs leaf checks on virtual threads (on JDK 21+; a cached pool otherwise).
+// Each sub-server gets its own bulkhead (a permit limit on in-flight leaf checks
+// in its subtree) so slow machines under one sub-server cannot starve the
+// others. A leaf that does not finish within the timeout, counted from when it
+// gets its permit, fails and is interrupted; waiting for a permit is not a failure.
+class AsyncCheckContext implements AutoCloseable {
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final int bulkheadSize;
+    private final Semaphore bulkhead;
+    private final boolean subServer;
+    // Sub-server context whose bulkhead also bounds this one's leaves, if any
+    private final AsyncCheckContext enclosing;
+    // One context per sub-server id, shared by every context of this check
+    private final ConcurrentHashMap<Integer, AsyncCheckContext> subServers;
+
+    public AsyncCheckContext(long timeoutMillis, int bulkheadSize) {
+        this(leafExecutor(), timeoutMillis, bulkheadSize, false, null, new ConcurrentHashMap<>());
+    }
+
+    // Looked up reflectively so the demo still builds and runs on JDK 17
+    private static ExecutorService leafExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "leaf-check");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private AsyncCheckContext(ExecutorService executor, long timeoutMillis, int bulkheadSize,
+            boolean subServer, AsyncCheckContext enclosing,
+            ConcurrentHashMap<Integer, AsyncCheckContext> subServers) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.bulkheadSize = bulkheadSize;
+        this.bulkhead = new Semaphore(bulkheadSize);
+        this.subServer = subServer;
+        this.enclosing = enclosing;
+        this.subServers = subServers;
+    }
+
+    // Context for the subtree of one sub-server. Its bulkhead is created once
+    // per sub-server and, for a nested sub-server, is taken on top of its
+    // parent's, so a subtree never has more leaf checks in flight than any
+    // sub-server above it allows.
+    AsyncCheckContext forSubServer(NetworkComponent subServer) {
+        AsyncCheckContext parent = this.subServer ? this : null;
+        return subServers.computeIfAbsent(subServer.getId(),
+                id -> new AsyncCheckContext(executor, timeoutMillis, bulkheadSize, true, parent, subServers));
+    }
+
+    // Takes this context's permit and every enclosing one, outermost first so
+    // concurrent leaves always acquire in the same order
+    private void acquire() throws InterruptedException {
+        if (enclosing != null) {
+            enclosing.acquire();
+        }
+        try {
+            bulkhead.acquire();
+        } catch (InterruptedException e) {
+            if (enclosing != null) {
+                enclosing.release();
+            }
+            throw e;
+        }
+    }
+
+    private void release() {
+        bulkhead.release();
+        if (enclosing != null) {
+            enclosing.release();
+        }
+    }
+
+    CompletableFuture<Boolean> runLeaf(NetworkComponent leaf) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                acquire();
+            } catch (InterruptedException e) {
+                result.complete(false);
+                return;
+            }
+            try {
+                result.completeOnTimeout(false, timeoutMillis, TimeUnit.MILLISECONDS);
+                result.complete(leaf.performSecurityCheck());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                release();
+            }
+        });
+        return result.exceptionally(e -> false) // a check that cannot run counts as failed
+                .whenComplete((passed, e) -> task.cancel(true));
+    }
+
+    CompletableFuture<Boolean> allPassed(List<NetworkComponent> components) {
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        for (NetworkComponent component : components) {
+            checks.add(component.performSecurityCheckAsync(this));
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> checks.stream().allMatch(CompletableFuture::join));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
+
+// Dirty flag, cached result and parent links behind incremental checks. A
+// component may have several parents (a shared tier in a DAG). A change is
+// always passed all the way up, even past components that are already dirty,
+// because a SharedSubtree above them must still drop its memoized result; each
+// change visits a component reached along several paths only once.
+class CheckState {
+    private static final AtomicLong changes = new AtomicLong();
+    // [change being propagated on this thread, nesting depth]
+    private static final ThreadLocal<long[]> propagating = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final List<NetworkComponent> parents = new ArrayList<>(1);
+    private boolean dirty = true; // never checked
+    private boolean lastResult;
+    private long lastChange;
+
+    void addParent(NetworkComponent parent) {
+        parents.add(parent);
+    }
+
+    void markDirty() {
+        markDirty(null);
+    }
+
+    // Runs below, if given, as part of the same change before the parents hear of it
+    void markDirty(Runnable below) {
+        long[] current = propagating.get();
+        if (current[1] == 0) {
+            current[0] = changes.incrementAndGet();
+        }
+        if (lastChange == current[0]) {
+            return;
+        }
+        lastChange = current[0];
+        dirty = true;
+        current[1]++;
+        try {
+            if (below != null) {
+                below.run();
+            }
+            for (NetworkComponent parent : parents) {
+                parent.markDirty();
+            }
+        } finally {
+            current[1]--;
+        }
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    boolean lastResult() {
+        return lastResult;
+    }
+
+    boolean clean(boolean result) {
+        lastResult = result;
+        dirty = false;
+        return result;
+    }
 }
 
 // Composite classes (simplified for pattern focus)
 class MainServer implements NetworkComponent {
     private List<NetworkComponent> components = new ArrayList<>();
     private String name;
+    private final int id;
+    private final CheckState state = new CheckState();
 
     public MainServer(String name) {
         this.name = name;
+        this.id = ComponentRegistry.register(name);
     }
 
     public void add(NetworkComponent component) {
         components.add(component);
+        component.addParent(this);
+        markDirty();
     }
 
     @Override
@@ -39,22 +530,86 @@ class MainServer implements NetworkComponent {
         return allPassed;
     }
 
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        System.out.println("Main Server: Performing basic security checks");
+        return context.allPassed(components);
+    }
+
+    private boolean runBasicChecks() {
+        return true; // Simplified
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        CheckResult result = new CheckResult(id, name);
+        long start = System.nanoTime();
+        result.record(CheckType.BASIC, runBasicChecks(), start, System.nanoTime());
+        for (NetworkComponent component : components) {
+            CheckResult child = component.performStructuredCheck(sink);
+            sink.accept(child);
+            result.addChild(child);
+        }
+        return result.finish();
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        System.out.println("Main Server: Performing basic security checks");
+        return policy.sweep(components, false);
+    }
+
+    @Override
+    public boolean performIncrementalCheck() {
+        if (!state.isDirty()) {
+            return state.lastResult();
+        }
+        System.out.println("Main Server: Re-checking changed components");
+        boolean allPassed = true;
+        for (NetworkComponent component : components) {
+            if (!component.performIncrementalCheck()) {
+                allPassed = false;
+            }
+        }
+        return state.clean(allPassed);
+    }
+
+    @Override
+    public void markDirty() {
+        state.markDirty();
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        state.addParent(parent);
+    }
+
     @Override
     public String getName() {
         return name;
     }
+
+    @Override
+    public int getId() {
+        return id;
+    }
 }
 
 class SubServer implements NetworkComponent {
     private List<NetworkComponent> components = new ArrayList<>();
     private String name;
+    private final int id;
+    private final CheckState state = new CheckState();
 
     public SubServer(String name) {
         this.name = name;
+        this.id = ComponentRegistry.register(name);
     }
 
     public void add(NetworkComponent component) {
         components.add(component);
+        component.addParent(this);
+        markDirty();
     }
 
     @Override
@@ -69,29 +624,139 @@ class SubServer implements NetworkComponent {
         return allPassed;
     }
 
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        System.out.println("Sub Server: Performing basic security checks");
+        return context.forSubServer(this).allPassed(components);
+    }
+
+    private boolean runBasicChecks() {
+        return true; // Simplified
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        CheckResult result = new CheckResult(id, name);
+        long start = System.nanoTime();
+        result.record(CheckType.BASIC, runBasicChecks(), start, System.nanoTime());
+        for (NetworkComponent component : components) {
+            CheckResult child = component.performStructuredCheck(sink);
+            sink.accept(child);
+            result.addChild(child);
+        }
+        return result.finish();
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        System.out.println("Sub Server: Performing basic security checks");
+        return policy.sweep(components, true);
+    }
+
+    @Override
+    public boolean performIncrementalCheck() {
+        if (!state.isDirty()) {
+            return state.lastResult();
+        }
+        System.out.println("Sub Server: Re-checking changed components");
+        boolean allPassed = true;
+        for (NetworkComponent component : components) {
+            if (!component.performIncrementalCheck()) {
+                allPassed = false;
+            }
+        }
+        return state.clean(allPassed);
+    }
+
+    @Override
+    public void markDirty() {
+        state.markDirty();
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        state.addParent(parent);
+    }
+
     @Override
     public String getName() {
         return name;
     }
+
+    @Override
+    public int getId() {
+        return id;
+    }
 }
 
 class ClientComputer implements NetworkComponent {
     private String name;
+    private final int id;
+    private final CheckState state = new CheckState();
 
     public ClientComputer(String name) {
         this.name = name;
+        this.id = ComponentRegistry.register(name);
     }
 
     @Override
     public boolean performSecurityCheck() {
         System.out.println("Client Computer: Scanning malware, updating antivirus, applying patches");
+        return runBasicChecks();
+    }
+
+    private boolean runBasicChecks() {
         return true; // Simplified
     }
 
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        CheckResult result = new CheckResult(id, name);
+        long start = System.nanoTime();
+        result.record(CheckType.BASIC, runBasicChecks(), start, System.nanoTime());
+        return result.finish();
+    }
+
+    @Override
+    public boolean performIncrementalCheck() {
+        return state.isDirty() ? state.clean(performSecurityCheck()) : state.lastResult();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        return context.runLeaf(this);
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        return performSecurityCheck();
+    }
+
+    @Override
+    public void markDirty() {
+        state.markDirty();
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        state.addParent(parent);
+    }
+
+    // A newly installed patch invalidates the cached check result
+    public void installPatch(String patch) {
+        System.out.println("Client Computer " + name + ": Installed patch " + patch);
+        markDirty();
+    }
+
     @Override
     public String getName() {
         return name;
     }
+
+    @Override
+    public int getId() {
+        return id;
+    }
 }
 
 // Base Decorator
@@ -107,10 +772,46 @@ abstract class SecurityDecorator implements NetworkComponent {
         return component.performSecurityCheck();
     }
 
+    @Override
+    public boolean performIncrementalCheck() {
+        return component.performIncrementalCheck();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        return component.performSecurityCheckAsync(context);
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        return component.performStructuredCheck(sink);
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        return component.performSweep(policy);
+    }
+
+    @Override
+    public void markDirty() {
+        component.markDirty();
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        component.addParent(parent);
+    }
+
     @Override
     public String getName() {
         return component.getName();
     }
+
+    // Decorators share the id of the component they wrap
+    @Override
+    public int getId() {
+        return component.getId();
+    }
 }
 
 // Concrete Decorators
@@ -122,17 +823,51 @@ class EncryptionCheckDecorator extends SecurityDecorator {
 
     @Override
     public boolean performSecurityCheck() {
-        boolean baseResult = super.performSecurityCheck();
+        return withEncryptionCheck(super.performSecurityCheck());
+    }
+
+    // The extra check is not cached; only the wrapped component's result is
+    @Override
+    public boolean performIncrementalCheck() {
+        return withEncryptionCheck(super.performIncrementalCheck());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        return super.performSecurityCheckAsync(context).thenApply(this::withEncryptionCheck);
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        return withEncryptionCheck(super.performSweep(policy));
+    }
+
+    private boolean withEncryptionCheck(boolean baseResult) {
         boolean encryptionResult = performEncryptionCheck();
         System.out.println("Applied encryption check to " + getName());
         return baseResult && encryptionResult;
     }
 
-    private boolean performEncryptionCheck() {
+    static boolean performEncryptionCheck() {
         System.out.println("Performing encryption validation check");
+        return encryptionCheckPasses();
+    }
+
+    static boolean encryptionCheckPasses() {
         return true; // Simplified
     }
 
+    static CheckResult recordEncryptionCheck(CheckResult result) {
+        long start = System.nanoTime();
+        result.record(CheckType.ENCRYPTION, encryptionCheckPasses(), start, System.nanoTime());
+        return result.finish();
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        return recordEncryptionCheck(super.performStructuredCheck(sink));
+    }
+
     @Override
     public String getName() {
         return super.getName() + " (Encryption Check)";
@@ -147,30 +882,308 @@ class DeepScanDecorator extends SecurityDecorator {
 
     @Override
     public boolean performSecurityCheck() {
-        boolean baseResult = super.performSecurityCheck();
+        return withDeepScan(super.performSecurityCheck());
+    }
+
+    @Override
+    public boolean performIncrementalCheck() {
+        return withDeepScan(super.performIncrementalCheck());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        return super.performSecurityCheckAsync(context).thenApply(this::withDeepScan);
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        return withDeepScan(super.performSweep(policy));
+    }
+
+    private boolean withDeepScan(boolean baseResult) {
         boolean deepScanResult = performDeepScan();
         System.out.println("Applied deep scan to " + getName());
         return baseResult && deepScanResult;
     }
 
-    private boolean performDeepScan() {
+    static boolean performDeepScan() {
         System.out.println("Performing comprehensive deep security scan");
+        return deepScanPasses();
+    }
+
+    static boolean deepScanPasses() {
         return true; // Simplified
     }
 
+    static CheckResult recordDeepScan(CheckResult result) {
+        long start = System.nanoTime();
+        result.record(CheckType.DEEP_SCAN, deepScanPasses(), start, System.nanoTime());
+        return result.finish();
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        return recordDeepScan(super.performStructuredCheck(sink));
+    }
+
     @Override
     public String getName() {
         return super.getName() + " (Deep Scan)";
     }
 }
 
+// Memoized subtree results for topologies where one subtree sits under several
+// parents. A result is reused until its time-to-live runs out or the subtree is
+// marked dirty; callers arriving while it is being evaluated wait for that one
+// evaluation instead of starting their own.
+class SubtreeMemo {
+    private static final class Entry {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        volatile long completedNanos;
+    }
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder evaluations = new LongAdder();
+
+    SubtreeMemo(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    boolean check(NetworkComponent subtree) {
+        int id = subtree.getId();
+        while (true) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                Entry fresh = new Entry();
+                if (entries.putIfAbsent(id, fresh) == null) {
+                    return evaluate(id, fresh, subtree);
+                }
+            } else if (!entry.result.isDone()
+                    || System.nanoTime() - entry.completedNanos < ttlNanos) {
+                return entry.result.join();
+            } else {
+                Entry fresh = new Entry();
+                if (entries.replace(id, entry, fresh)) {
+                    return evaluate(id, fresh, subtree);
+                }
+            }
+        }
+    }
+
+    void invalidate(NetworkComponent subtree) {
+        entries.remove(subtree.getId());
+    }
+
+    long evaluations() {
+        return evaluations.sum();
+    }
+
+    private boolean evaluate(int id, Entry entry, NetworkComponent subtree) {
+        evaluations.increment();
+        try {
+            boolean passed = subtree.performSecurityCheck();
+            entry.completedNanos = System.nanoTime();
+            entry.result.complete(passed);
+            return passed;
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
+
+// Wraps a subtree that is shared between parents so they all go through one
+// SubtreeMemo. It sits between the subtree and its parents, so a change below
+// invalidates the memoized result before reaching the parents.
+class SharedSubtree extends SecurityDecorator {
+    private final SubtreeMemo memo;
+    private final CheckState state = new CheckState();
+
+    public SharedSubtree(NetworkComponent component, SubtreeMemo memo) {
+        super(component);
+        this.memo = memo;
+        component.addParent(this);
+    }
+
+    @Override
+    public boolean performSecurityCheck() {
+        return memo.check(component);
+    }
+
+    @Override
+    public void markDirty() {
+        // The wrapped component's own propagation comes back here within the
+        // same change, so the state stops it instead of looping
+        state.markDirty(() -> {
+            memo.invalidate(component);
+            component.markDirty();
+        });
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        state.addParent(parent);
+    }
+}
+
+// Flat replacement for an EncryptionCheckDecorator/DeepScanDecorator stack:
+// one object per component that runs the base check and then the enabled
+// extra checks in the same order the nested decorators would.
+final class CheckPlan implements NetworkComponent {
+    static final int ENCRYPTION = 1, DEEP_SCAN = 2;
+
+    private final NetworkComponent component;
+    private final int checks;
+    private final String encryptedName, decoratedName;
+
+    CheckPlan(NetworkComponent component, int checks) {
+        this.component = component;
+        this.checks = checks;
+        String name = component.getName();
+        this.encryptedName = (checks & ENCRYPTION) != 0 ? name + " (Encryption Check)" : name;
+        this.decoratedName = (checks & DEEP_SCAN) != 0 ? encryptedName + " (Deep Scan)" : encryptedName;
+    }
+
+    int checks() {
+        return checks;
+    }
+
+    NetworkComponent component() {
+        return component;
+    }
+
+    @Override
+    public boolean performSecurityCheck() {
+        return withChecks(component.performSecurityCheck());
+    }
+
+    @Override
+    public boolean performIncrementalCheck() {
+        return withChecks(component.performIncrementalCheck());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> performSecurityCheckAsync(AsyncCheckContext context) {
+        return component.performSecurityCheckAsync(context).thenApply(this::withChecks);
+    }
+
+    @Override
+    public boolean performSweep(SweepPolicy policy) {
+        return withChecks(component.performSweep(policy));
+    }
+
+    @Override
+    public CheckResult performStructuredCheck(CheckResultSink sink) {
+        CheckResult result = component.performStructuredCheck(sink);
+        if ((checks & ENCRYPTION) != 0) {
+            EncryptionCheckDecorator.recordEncryptionCheck(result);
+        }
+        if ((checks & DEEP_SCAN) != 0) {
+            DeepScanDecorator.recordDeepScan(result);
+        }
+        return result;
+    }
+
+    @Override
+    public void markDirty() {
+        component.markDirty();
+    }
+
+    @Override
+    public void addParent(NetworkComponent parent) {
+        component.addParent(parent);
+    }
+
+    private boolean withChecks(boolean result) {
+        if ((checks & ENCRYPTION) != 0) {
+            result &= EncryptionCheckDecorator.performEncryptionCheck();
+            System.out.println("Applied encryption check to " + encryptedName);
+        }
+        if ((checks & DEEP_SCAN) != 0) {
+            result &= DeepScanDecorator.performDeepScan();
+            System.out.println("Applied deep scan to " + decoratedName);
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return decoratedName;
+    }
+
+    @Override
+    public int getId() {
+        return component.getId();
+    }
+}
+
+// Result of SecurityManager.classifyFleet, indexed by component id: which
+// components need each extra check, and the combined CheckPlan bits per component
+class FleetClassification {
+    final BitSet needsEncryption, needsDeepScan;
+    private final byte[] checks;
+
+    FleetClassification(BitSet needsEncryption, BitSet needsDeepScan, byte[] checks) {
+        this.needsEncryption = needsEncryption;
+        this.needsDeepScan = needsDeepScan;
+        this.checks = checks;
+    }
+
+    int checks(int componentId) {
+        return componentId < checks.length ? checks[componentId] : 0;
+    }
+
+    int size() {
+        return checks.length;
+    }
+}
+
 // Security Manager for dynamic behavior
 class SecurityManager {
-    private Map<String, Queue<Boolean>> failureHistory = new HashMap<>();
-    private Set<String> sensitiveDataComponents = new HashSet<>();
+    private static final int HISTORY_SIZE = 5;
+
+    // Per component id: last results as bits (bit 0 newest, set = failed) and how many are recorded
+    private long[] failureHistory = new long[16];
+    private byte[] historyCount = new byte[16];
+    private final BitSet sensitiveDataComponents = new BitSet();
+    // Names marked sensitive, applied to every component with that name whether
+    // it registers before or after the name is added
+    private final Set<String> sensitiveNames = new HashSet<>();
+    private int namesResolvedUpTo;
+    // Cached plan per component id, rebuilt only when its checks change
+    private CheckPlan[] plans = new CheckPlan[16];
 
     public void addSensitiveDataComponent(String componentName) {
-        sensitiveDataComponents.add(componentName);
+        resolveSensitiveNames();
+        if (sensitiveNames.add(componentName)) {
+            for (int id = 0; id < namesResolvedUpTo; id++) {
+                if (componentName.equals(ComponentRegistry.nameOf(id))) {
+                    sensitiveDataComponents.set(id);
+                }
+            }
+        }
+    }
+
+    // Marks components registered since the last call whose name is sensitive
+    private void resolveSensitiveNames() {
+        int registered = ComponentRegistry.count();
+        if (registered == namesResolvedUpTo) {
+            return;
+        }
+        if (!sensitiveNames.isEmpty()) {
+            for (int id = namesResolvedUpTo; id < registered; id++) {
+                if (sensitiveNames.contains(ComponentRegistry.nameOf(id))) {
+                    sensitiveDataComponents.set(id);
+                }
+            }
+        }
+        namesResolvedUpTo = registered;
+    }
+
+    public void addSensitiveDataComponent(NetworkComponent component) {
+        sensitiveDataComponents.set(component.getId());
     }
 
     public NetworkComponent applyDynamicChecks(NetworkComponent component) {
@@ -189,34 +1202,247 @@ class SecurityManager {
         return decoratedComponent;
     }
 
-    public void recordCheckResult(NetworkComponent component, boolean result) {
-        String name = component.getName();
-        failureHistory.computeIfAbsent(name, k -> new LinkedList<>());
+    // Same checks as applyDynamicChecks, but returns a cached flat plan. Nothing is
+    // allocated unless the component's sensitivity or deep-scan status changed.
+    public NetworkComponent planChecks(NetworkComponent component) {
+        int checks = (needsEncryptionCheck(component) ? CheckPlan.ENCRYPTION : 0)
+                | (needsDeepScan(component) ? CheckPlan.DEEP_SCAN : 0);
+        return planChecks(component, checks);
+    }
+
+    // Cached plan using checks from a bulk classification
+    public NetworkComponent planChecks(NetworkComponent component, FleetClassification classification) {
+        return planChecks(component, classification.checks(component.getId()));
+    }
 
-        Queue<Boolean> history = failureHistory.get(name);
-        history.offer(result);
+    // Classifies every registered component in one pass over the primitive
+    // history arrays and the sensitive set, without touching component objects
+    public FleetClassification classifyFleet() {
+        resolveSensitiveNames();
+        int n = namesResolvedUpTo;
+        BitSet needsEncryption = sensitiveDataComponents.get(0, n);
+        long[] sensitiveWords = needsEncryption.toLongArray();
+        long[] deepScanWords = new long[(n + 63) >>> 6];
+        byte[] checks = new byte[n];
+        int known = Math.min(n, failureHistory.length);
+        for (int id = 0; id < n; id++) {
+            int word = id >>> 6;
+            boolean sensitive = word < sensitiveWords.length && (sensitiveWords[word] >>> id & 1) != 0;
+            int plan = sensitive ? CheckPlan.ENCRYPTION : 0;
+            if (id < known && historyCount[id] >= HISTORY_SIZE && failureHistory[id] != 0) {
+                deepScanWords[word] |= 1L << id;
+                plan |= CheckPlan.DEEP_SCAN;
+            }
+            checks[id] = (byte) plan;
+        }
+        BitSet needsDeepScan = BitSet.valueOf(deepScanWords);
+        return new FleetClassification(needsEncryption, needsDeepScan, checks);
+    }
 
+    private NetworkComponent planChecks(NetworkComponent component, int checks) {
+        int id = component.getId();
+        if (id >= plans.length) {
+            plans = Arrays.copyOf(plans, Math.max(id + 1, plans.length * 2));
+        }
+        CheckPlan plan = plans[id];
+        if (plan == null || plan.checks() != checks || plan.component() != component) {
+            plan = new CheckPlan(component, checks);
+            plans[id] = plan;
+        }
+        return plan;
+    }
+
+    public void recordCheckResult(NetworkComponent component, boolean result) {
+        component.markDirty();
+        int id = component.getId();
+        ensureCapacity(id + 1);
         // Keep only last 5 results
-        if (history.size() > 5) {
-            history.poll();
+        failureHistory[id] = ((failureHistory[id] << 1) | (result ? 0 : 1)) & ((1L << HISTORY_SIZE) - 1);
+        if (historyCount[id] < HISTORY_SIZE) {
+            historyCount[id]++;
         }
     }
 
-    private boolean needsEncryptionCheck(NetworkComponent component) {
-        return sensitiveDataComponents.contains(component.getName().split(" \\(")[0]);
+    private void ensureCapacity(int needed) {
+        if (needed > failureHistory.length) {
+            int capacity = Math.max(needed, failureHistory.length * 2);
+            failureHistory = Arrays.copyOf(failureHistory, capacity);
+            historyCount = Arrays.copyOf(historyCount, capacity);
+        }
+    }
+
+    public boolean isSensitive(NetworkComponent component) {
+        return needsEncryptionCheck(component);
     }
 
-    private boolean needsDeepScan(NetworkComponent component) {
-        String name = component.getName().split(" \\(")[0];
-        Queue<Boolean> history = failureHistory.get(name);
+    // Share of failed checks among the recorded ones (0 when none are recorded)
+    public double failureRate(NetworkComponent component) {
+        int id = component.getId();
+        if (id >= failureHistory.length || historyCount[id] == 0) {
+            return 0.0;
+        }
+        return (double) Long.bitCount(failureHistory[id]) / historyCount[id];
+    }
+
+    private boolean needsEncryptionCheck(NetworkComponent component) {
+        resolveSensitiveNames();
+        return sensitiveDataComponents.get(component.getId());
+    }
 
-        if (history == null || history.size() < 5) {
+    boolean needsDeepScan(NetworkComponent component) {
+        int id = component.getId();
+        if (id >= failureHistory.length || historyCount[id] < HISTORY_SIZE) {
             return false;
         }
 
-        // Count failures in last 5 checks
-        long failures = history.stream().mapToLong(result -> result ? 0 : 1).sum();
-        return failures > 0;
+        // Any failure in last 5 checks
+        return failureHistory[id] != 0;
+    }
+}
+
+// Global scans-per-second limit: callers are spaced evenly over time
+class ScanRateLimiter {
+    private final long intervalNanos;
+    private long nextSlot = System.nanoTime();
+
+    ScanRateLimiter(double scansPerSecond) {
+        if (!(scansPerSecond > 0)) { // also rejects NaN
+            throw new IllegalArgumentException("scansPerSecond must be positive: " + scansPerSecond);
+        }
+        this.intervalNanos = (long) (1_000_000_000L / scansPerSecond);
+    }
+
+    void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + intervalNanos;
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
+
+// Runs pending deep scans on a bounded worker pool, riskiest first. Risk is the
+// recent failure rate plus a fixed boost for components holding sensitive data,
+// captured when the scan is submitted; equal risks run in submission order.
+class DeepScanScheduler implements AutoCloseable {
+    private static final double SENSITIVE_BOOST = 0.5;
+
+    private static final class PendingScan implements Comparable<PendingScan> {
+        final NetworkComponent component;
+        final double risk;
+        final long sequence, enqueuedNanos;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        PendingScan(NetworkComponent component, double risk, long sequence) {
+            this.component = component;
+            this.risk = risk;
+            this.sequence = sequence;
+            this.enqueuedNanos = System.nanoTime();
+        }
+
+        @Override
+        public int compareTo(PendingScan other) {
+            int byRisk = Double.compare(other.risk, risk);
+            return byRisk != 0 ? byRisk : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final SecurityManager securityManager;
+    private final PriorityBlockingQueue<PendingScan> queue = new PriorityBlockingQueue<>();
+    private final ScanRateLimiter rateLimiter;
+    private final ExecutorService workers;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public DeepScanScheduler(SecurityManager securityManager, int workerCount, double scansPerSecond) {
+        this.securityManager = securityManager;
+        this.rateLimiter = new ScanRateLimiter(scansPerSecond);
+        this.workers = Executors.newFixedThreadPool(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    public CompletableFuture<Boolean> submit(NetworkComponent component) {
+        double risk = securityManager.failureRate(component)
+                + (securityManager.isSensitive(component) ? SENSITIVE_BOOST : 0.0);
+        PendingScan scan = new PendingScan(component, risk, sequence.getAndIncrement());
+        queue.add(scan);
+        // Raced with close(): make sure the scan does not sit in the queue forever
+        if (closed && queue.remove(scan)) {
+            scan.result.cancel(false);
+        }
+        return scan.result;
+    }
+
+    // Queues a deep scan for every component the manager says needs one
+    public List<CompletableFuture<Boolean>> submitPending(List<NetworkComponent> fleet) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (NetworkComponent component : fleet) {
+            if (securityManager.needsDeepScan(component)) {
+                results.add(submit(component));
+            }
+        }
+        return results;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    public double averageWaitMillis() {
+        long n = completed.sum();
+        return n == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / n;
+    }
+
+    public double maxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    private void runWorker() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Wait for the rate permit before taking a scan, so no worker holds
+                // a scan while it waits and the riskiest queued scan is the one run
+                rateLimiter.acquire();
+                PendingScan scan = queue.take();
+                long waited = System.nanoTime() - scan.enqueuedNanos;
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                try {
+                    scan.result.complete(new DeepScanDecorator(scan.component).performSecurityCheck());
+                } catch (RuntimeException e) {
+                    scan.result.completeExceptionally(e);
+                }
+                completed.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stops the workers; scans still queued are cancelled. A worker is only
+    // interrupted while it holds no scan, or while running one it then completes.
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+        PendingScan scan;
+        while ((scan = queue.poll()) != null) {
+            scan.result.cancel(false);
+        }
     }
 }
 
@@ -258,5 +1484,80 @@ public class SecuritySystemDemo {
         NetworkComponent doubleDecorated = new DeepScanDecorator(
                 new EncryptionCheckDecorator(client1));
         System.out.println("Double decorated client: " + doubleDecorated.performSecurityCheck());
+
+        // Cached flat plan: same output as the decorator stack, rebuilt only on change
+        NetworkComponent plannedSubServer1 = securityManager.planChecks(subServer1);
+        System.out.println("Sub Server 1 (planned): " + plannedSubServer1.performSecurityCheck());
+        System.out.println("Plan reused: " + (plannedSubServer1 == securityManager.planChecks(subServer1)));
+
+        // Incremental sweep: only the path to the patched workstation is re-checked
+        System.out.println("=== Incremental Check ===");
+        mainServer.performIncrementalCheck();
+        client1.installPatch("KB-2025-10");
+        System.out.println("Main Server after patch: " + mainServer.performIncrementalCheck());
+
+        // Asynchronous sweep: leaves run on virtual threads with a 500 ms timeout each
+        System.out.println("=== Async Check ===");
+        try (AsyncCheckContext context = new AsyncCheckContext(500, 64)) {
+            System.out.println("Main Server async: " + mainServer.performSecurityCheckAsync(context).join());
+        }
+
+        // Structured check: no console output during the sweep, latencies per check type
+        System.out.println("=== Structured Check ===");
+        LatencyHistogramSink histograms = new LatencyHistogramSink();
+        CheckResult root = CheckResult.run(securityManager.planChecks(subServer1), histograms);
+        System.out.println(root.name + " passed: " + root.passed() + ", encryption checked: "
+                + root.passed(CheckType.ENCRYPTION) + ", children: " + root.children().size());
+        System.out.print(histograms.summary());
+
+        // Deep scans for the riskiest machines first, at most 20 per second
+        System.out.println("=== Deep Scan Scheduler ===");
+        for (int i = 0; i < 5; i++) {
+            securityManager.recordCheckResult(client1, false);
+            securityManager.recordCheckResult(client2, i == 0);
+        }
+        try (DeepScanScheduler scheduler = new DeepScanScheduler(securityManager, 1, 20)) {
+            List<CompletableFuture<Boolean>> scans = scheduler.submitPending(List.of(client1, client2));
+            scans.forEach(CompletableFuture::join);
+            System.out.printf("Deep scans: %d, queue depth: %d, avg wait: %.1f ms%n",
+                    scheduler.completed(), scheduler.queueDepth(), scheduler.averageWaitMillis());
+        }
+
+        // Quick health gates
+        System.out.println("=== Fail-fast and Sampled Sweeps ===");
+        System.out.println("Fail-fast: " + mainServer.performSweep(SweepPolicy.failFast()));
+        SweepPolicy sample = SweepPolicy.sampled(0.5, 7);
+        System.out.printf("Sampled: %b (%d checked, %d skipped, failure rate <= %.2f at 95%%)%n",
+                mainServer.performSweep(sample), sample.sampled(), sample.skipped(),
+                sample.failureRateUpperBound(1.96));
+
+        // Storage tier shared by two main servers: checked once, reused within the TTL
+        System.out.println("=== Shared Subtree ===");
+        SubtreeMemo memo = new SubtreeMemo(60_000);
+        SubServer storage = new SubServer("Shared Storage Tier");
+        ClientComputer storageNode = new ClientComputer("Storage Node 1");
+        storage.add(storageNode);
+        SharedSubtree sharedStorage = new SharedSubtree(storage, memo);
+        MainServer east = new MainServer("East Main Server");
+        MainServer west = new MainServer("West Main Server");
+        east.add(sharedStorage);
+        west.add(sharedStorage);
+        CompletableFuture<Boolean> eastCheck = CompletableFuture.supplyAsync(east::performSecurityCheck);
+        boolean westPassed = west.performSecurityCheck();
+        System.out.println("East: " + eastCheck.join() + ", West: " + westPassed
+                + ", storage evaluations: " + memo.evaluations());
+        // A patch below the shared tier drops the memoized result
+        storageNode.installPatch("KB-2025-11");
+        securityManager.recordCheckResult(storageNode, false);
+        System.out.println("East after patch: " + east.performSecurityCheck()
+                + ", storage evaluations: " + memo.evaluations());
+
+        // Classify the whole fleet at once, then decorate from the result
+        System.out.println("=== Fleet Classification ===");
+        FleetClassification classification = securityManager.classifyFleet();
+        System.out.println("Need encryption: " + classification.needsEncryption.cardinality()
+                + ", need deep scan: " + classification.needsDeepScan.cardinality()
+                + " of " + classification.size());
+        System.out.println("Client 1 plan: " + securityManager.planChecks(client1, classification).getName());
     }
 }
\ No newline at end of file
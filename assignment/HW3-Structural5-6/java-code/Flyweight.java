@@ -1,4 +1,29 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
 
 class Player {
     String name;
@@ -19,9 +44,19 @@ class Player {
 interface ICollectible {
     void draw(int x, int y);
 
+    void draw(int x, int y, RenderSink sink);
+
     void activateEffect(Player p);
 
+    // Stat changes the effect applies, for callers that apply effects themselves
+    int healthBonus();
+
+    int strengthBonus();
+
     void calculateValue();
+
+    // Value is fixed per flyweight, so it is computed once at construction
+    int getValue();
 }
 
 // Concrete Flyweight
@@ -38,6 +73,7 @@ class Orb implements ICollectible {
     private rarity rarityType;
     private int size;
     private String texture;
+    private final int value;
 
     Orb(effect effectType, rarity rarityType, int size, String texture)
 
@@ -46,15 +82,46 @@ class Orb implements ICollectible {
         this.rarityType = rarityType;
         this.size = size;
         this.texture = texture;
+        this.value = computeValue(effectType, rarityType, size);
     }
 
     @Override
     public void draw(int x, int y) {
-        System.out.println("Position of the orb is:" + x + "," + y);
+        draw(x, y, ConsoleRenderSink.INSTANCE);
+    }
+
+    @Override
+    public void draw(int x, int y, RenderSink sink) {
+        sink.submit("orb", texture, x, y);
     }
 
     @Override
     public void calculateValue() {
+        System.out.println("Orb Value : " + value);
+    }
+
+    @Override
+    public int getValue() {
+        return value;
+    }
+
+    effect getEffect() {
+        return effectType;
+    }
+
+    rarity getRarity() {
+        return rarityType;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    String getTexture() {
+        return texture;
+    }
+
+    private static int computeValue(effect effectType, rarity rarityType, int size) {
         int orbValue = 0;
         // rarity,size,effect
         switch (rarityType) {
@@ -78,7 +145,7 @@ class Orb implements ICollectible {
         }
 
         orbValue += size * 3;
-        System.out.println("Orb Value : " + orbValue);
+        return orbValue;
     }
 
     @Override
@@ -99,6 +166,16 @@ class Orb implements ICollectible {
             System.out.println("Effect " + effectType + " activated.");
         }
     }
+
+    @Override
+    public int healthBonus() {
+        return effectType == effect.healing ? 5 : 0;
+    }
+
+    @Override
+    public int strengthBonus() {
+        return effectType == effect.increasesize ? 10 : 0;
+    }
 }
 
 // Concrete Flyweight
@@ -120,6 +197,7 @@ class Gem implements ICollectible {
     private effect effectType;
     private rarity rarityType;
     private name gemType;
+    private final int value;
 
     Gem(name gemType, rarity rarityType, effect effectType, int size, String texture) {
         this.gemType = gemType;
@@ -127,15 +205,50 @@ class Gem implements ICollectible {
         this.effectType = effectType;
         this.size = size;
         this.texture = texture;
+        this.value = computeValue(gemType, rarityType, size);
     }
 
     @Override
     public void draw(int x, int y) {
-        System.out.println("Position of the gem is:" + x + "," + y);
+        draw(x, y, ConsoleRenderSink.INSTANCE);
+    }
+
+    @Override
+    public void draw(int x, int y, RenderSink sink) {
+        sink.submit("gem", texture, x, y);
     }
 
     @Override
     public void calculateValue() {
+        System.out.println("Gem value is: " + value);
+    }
+
+    @Override
+    public int getValue() {
+        return value;
+    }
+
+    name getName() {
+        return gemType;
+    }
+
+    effect getEffect() {
+        return effectType;
+    }
+
+    rarity getRarity() {
+        return rarityType;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    String getTexture() {
+        return texture;
+    }
+
+    private static int computeValue(name gemType, rarity rarityType, int size) {
         int gemValue = 0;
         // rarity,size,name
         switch (rarityType) {
@@ -161,7 +274,7 @@ class Gem implements ICollectible {
                 break;
         }
         gemValue += size * 3;
-        System.out.println("Gem value is: " + gemValue);
+        return gemValue;
     }
 
     @Override
@@ -181,12 +294,167 @@ class Gem implements ICollectible {
             System.out.println("Effect " + effectType + " activated.");
         }
     }
+
+    @Override
+    public int healthBonus() {
+        return effectType == effect.health ? 10 : 0;
+    }
+
+    @Override
+    public int strengthBonus() {
+        return effectType == effect.strength ? 5 : 0;
+    }
+}
+
+// Applies pickup effects to shared players without locks on the hot path.
+// Players are partitioned by id; pickup threads enqueue into the owning
+// partition's lock-free queue and each partition is drained by a single writer,
+// so Player fields are never updated from two threads at once.
+class EffectEngine {
+    private static final class Event {
+        final int playerId;
+        final ICollectible type;
+
+        Event(int playerId, ICollectible type) {
+            this.playerId = playerId;
+            this.type = type;
+        }
+    }
+
+    private final List<Queue<Event>> queues = new ArrayList<>();
+    private final AtomicBoolean[] draining;
+    // Grown by doubling; a slot is written before playerCount publishes it
+    private volatile Player[] players = new Player[16];
+    private volatile int playerCount;
+
+    public EffectEngine(int partitions) {
+        draining = new AtomicBoolean[partitions];
+        for (int i = 0; i < partitions; i++) {
+            queues.add(new ConcurrentLinkedQueue<>());
+            draining[i] = new AtomicBoolean();
+        }
+    }
+
+    public synchronized int registerPlayer(Player p) {
+        int id = playerCount;
+        if (id == players.length) {
+            players = Arrays.copyOf(players, id * 2);
+        }
+        players[id] = p;
+        playerCount = id + 1;
+        return id;
+    }
+
+    // Safe to call from any number of pickup threads
+    public void submit(int playerId, ICollectible type) {
+        if (playerId < 0 || playerId >= playerCount) {
+            throw new IllegalArgumentException("Unknown player id " + playerId);
+        }
+        queues.get(playerId % queues.size()).offer(new Event(playerId, type));
+    }
+
+    // Drains every partition in parallel; events for a player apply in submit order.
+    public void applyPending() {
+        IntStream.range(0, queues.size()).parallel().forEach(this::drain);
+    }
+
+    private void drain(int partition) {
+        if (!draining[partition].compareAndSet(false, true)) {
+            return; // another thread owns this partition right now
+        }
+        try {
+            Queue<Event> queue = queues.get(partition);
+            Event event;
+            while ((event = queue.poll()) != null) {
+                // Read after poll: the player may have registered after the drain began
+                Player p = players[event.playerId];
+                p.health += event.type.healthBonus();
+                p.strength += event.type.strengthBonus();
+            }
+        } finally {
+            draining[partition].set(false);
+        }
+    }
+}
+
+// Render sink that flyweights draw into
+interface RenderSink {
+    void submit(String kind, String texture, int x, int y);
+
+    // Ends the frame
+    void flush();
+}
+
+// Debug sink: one console line per item, written immediately
+class ConsoleRenderSink implements RenderSink {
+    static final ConsoleRenderSink INSTANCE = new ConsoleRenderSink();
+
+    @Override
+    public void submit(String kind, String texture, int x, int y) {
+        System.out.println("Position of the " + kind + " is:" + x + "," + y);
+    }
+
+    @Override
+    public void flush() {
+    }
+}
+
+// Frame sink: groups draw calls by texture and writes the whole frame at once.
+// Batches and the frame buffer are reused across frames.
+class BatchedRenderSink implements RenderSink {
+    private static final class Batch {
+        int[] coords = new int[32];
+        int count;
+    }
+
+    private final Map<String, Batch> batches = new LinkedHashMap<>();
+    private final StringBuilder frame = new StringBuilder();
+    private final PrintStream out;
+
+    public BatchedRenderSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void submit(String kind, String texture, int x, int y) {
+        Batch batch = batches.get(texture);
+        if (batch == null) {
+            batch = new Batch();
+            batches.put(texture, batch);
+        }
+        if (batch.count * 2 == batch.coords.length) {
+            batch.coords = Arrays.copyOf(batch.coords, batch.coords.length * 2);
+        }
+        batch.coords[batch.count * 2] = x;
+        batch.coords[batch.count * 2 + 1] = y;
+        batch.count++;
+    }
+
+    @Override
+    public void flush() {
+        frame.setLength(0);
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            Batch batch = entry.getValue();
+            if (batch.count == 0) {
+                continue;
+            }
+            frame.append(entry.getKey()).append(" x").append(batch.count).append(':');
+            for (int i = 0; i < batch.count; i++) {
+                frame.append(' ').append(batch.coords[i * 2]).append(',').append(batch.coords[i * 2 + 1]);
+            }
+            frame.append('\n');
+            batch.count = 0;
+        }
+        out.print(frame);
+        out.flush();
+    }
 }
 
 class CollectibleExtrinsicState {
     private int x, y;
     private Player bearer;
     private ICollectible type;
+    private CollectibleGrid grid;
 
     public CollectibleExtrinsicState(ICollectible type, int x, int y) {
         this.type = type;
@@ -194,6 +462,21 @@ class CollectibleExtrinsicState {
         this.y = y;
     }
 
+    // Placed items tracked by a grid stay indexed as they move
+    public CollectibleExtrinsicState(ICollectible type, int x, int y, CollectibleGrid grid) {
+        this(type, x, y);
+        this.grid = grid;
+        grid.insert(this);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
     public void draw() {
         type.draw(x, y);
     }
@@ -204,40 +487,1159 @@ class CollectibleExtrinsicState {
     }
 
     public void move(int xPosition, int yPosition) {
+        int oldX = x, oldY = y;
         x += xPosition;
         y += yPosition;
+        if (grid != null) {
+            grid.update(this, oldX, oldY);
+        }
         System.out.print("Item moved,New ");
         type.draw(x, y);
     }
 }
+
+// Open-addressing map from long keys to values, so hot lookups keyed by packed
+// coordinates do not box a Long. Linear probing with backward-shift deletion.
+class LongObjectMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongObjectMap() {
+        keys = new long[16];
+        values = new Object[16];
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    public void remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            return;
+        }
+        // Shift later entries of the probe run back so lookups never stop early
+        int hole = i;
+        for (int j = (hole + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i], mask);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
+
+// Uniform grid over placed collectibles, so pickup queries only look at the
+// cells that overlap the query area instead of every item in the world.
+class CollectibleGrid {
+    private final int cellSize;
+    private final LongObjectMap<List<CollectibleExtrinsicState>> cells = new LongObjectMap<>();
+
+    public CollectibleGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private long cellOf(int x, int y) {
+        return cellKey(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize));
+    }
+
+    public void insert(CollectibleExtrinsicState item) {
+        addTo(cellOf(item.getX(), item.getY()), item);
+    }
+
+    public void remove(CollectibleExtrinsicState item) {
+        removeFrom(cellOf(item.getX(), item.getY()), item);
+    }
+
+    // Called after an item has moved away from (oldX, oldY).
+    public void update(CollectibleExtrinsicState item, int oldX, int oldY) {
+        long from = cellOf(oldX, oldY);
+        long to = cellOf(item.getX(), item.getY());
+        if (from != to) {
+            removeFrom(from, item);
+            addTo(to, item);
+        }
+    }
+
+    private void addTo(long key, CollectibleExtrinsicState item) {
+        List<CollectibleExtrinsicState> cell = cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>();
+            cells.put(key, cell);
+        }
+        cell.add(item);
+    }
+
+    private void removeFrom(long key, CollectibleExtrinsicState item) {
+        List<CollectibleExtrinsicState> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(item);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    public List<CollectibleExtrinsicState> queryRect(int minX, int minY, int maxX, int maxY) {
+        List<CollectibleExtrinsicState> found = new ArrayList<>();
+        // long loop bounds, so a range ending at the last cell cannot wrap
+        long minCx = Math.floorDiv(minX, cellSize), maxCx = Math.floorDiv(maxX, cellSize);
+        long minCy = Math.floorDiv(minY, cellSize), maxCy = Math.floorDiv(maxY, cellSize);
+        if ((double) (maxCx - minCx + 1) * (maxCy - minCy + 1) > cells.size()) {
+            // The query covers more cells than are occupied: visit the occupied ones
+            cells.forEach((key, cell) -> {
+                long cx = key >> 32, cy = (int) key;
+                if (cx >= minCx && cx <= maxCx && cy >= minCy && cy <= maxCy) {
+                    collect(cell, minX, minY, maxX, maxY, found);
+                }
+            });
+            return found;
+        }
+        for (long cx = minCx; cx <= maxCx; cx++) {
+            for (long cy = minCy; cy <= maxCy; cy++) {
+                List<CollectibleExtrinsicState> cell = cells.get(cellKey((int) cx, (int) cy));
+                if (cell != null) {
+                    collect(cell, minX, minY, maxX, maxY, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void collect(List<CollectibleExtrinsicState> cell, int minX, int minY, int maxX, int maxY,
+            List<CollectibleExtrinsicState> found) {
+        for (CollectibleExtrinsicState item : cell) {
+            if (item.getX() >= minX && item.getX() <= maxX
+                    && item.getY() >= minY && item.getY() <= maxY) {
+                found.add(item);
+            }
+        }
+    }
+
+    private static int clamp(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    public List<CollectibleExtrinsicState> queryRadius(int x, int y, int radius) {
+        List<CollectibleExtrinsicState> found = queryRect(clamp((long) x - radius), clamp((long) y - radius),
+                clamp((long) x + radius), clamp((long) y + radius));
+        long r2 = (long) radius * radius;
+        found.removeIf(item -> {
+            long dx = (long) item.getX() - x, dy = (long) item.getY() - y;
+            return dx * dx + dy * dy > r2;
+        });
+        return found;
+    }
+}
+
+// Shared texture bytes behind the flyweights' texture paths. Each file is mapped
+// once, reference-counted by the flyweights naming it, and unreferenced textures
+// are evicted least-recently-used first once the byte budget is exceeded.
+class TextureCache {
+    static final class Texture {
+        final String path;
+        final ByteBuffer bytes;
+        int refCount;
+
+        Texture(String path, ByteBuffer bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+
+        public ByteBuffer bytes() {
+            return bytes.duplicate();
+        }
+    }
+
+    private final long byteBudget;
+    // Access-ordered, so iteration starts at the least recently used texture
+    private final LinkedHashMap<String, Texture> textures = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes;
+    private int loads;
+
+    public TextureCache(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    public Texture acquire(String path) {
+        synchronized (this) {
+            Texture texture = textures.get(path);
+            if (texture != null) {
+                texture.refCount++;
+                return texture;
+            }
+        }
+        // Map without holding the lock so a slow load does not stall other
+        // acquires and releases; if another thread published first, use theirs.
+        ByteBuffer bytes = map(path);
+        synchronized (this) {
+            Texture texture = textures.get(path);
+            if (texture == null) {
+                texture = new Texture(path, bytes);
+                textures.put(path, texture);
+                loadedBytes += bytes.capacity();
+                loads++;
+            }
+            texture.refCount++;
+            evict();
+            return texture;
+        }
+    }
+
+    public synchronized void release(String path) {
+        Texture texture = textures.get(path);
+        if (texture == null || texture.refCount == 0) {
+            throw new IllegalStateException("Texture not acquired: " + path);
+        }
+        texture.refCount--;
+        evict();
+    }
+
+    public synchronized long loadedBytes() {
+        return loadedBytes;
+    }
+
+    public synchronized int loads() {
+        return loads;
+    }
+
+    public synchronized boolean isLoaded(String path) {
+        return textures.containsKey(path);
+    }
+
+    // Textures still referenced are never evicted, so the budget is a soft limit
+    private void evict() {
+        Iterator<Texture> it = textures.values().iterator();
+        while (loadedBytes > byteBudget && it.hasNext()) {
+            Texture texture = it.next();
+            if (texture.refCount == 0) {
+                it.remove();
+                loadedBytes -= texture.bytes.capacity();
+            }
+        }
+    }
+
+    private static ByteBuffer map(String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load texture " + path, e);
+        }
+    }
+}
+
+// Open-addressing table keyed by a packed long, so a cache hit never boxes a key.
+// Readers are lock-free: a slot's key is written before its value is published
+// through the AtomicReferenceArray, and a rebuilt table is published via volatile.
+// Values are held softly so unused flyweights can be reclaimed, and the table
+// stops pooling new keys once maxSize live entries are stored. A full table is
+// only compacted once enough of its flyweights have been reclaimed, so misses
+// beyond the cap stay cheap. Each entry may carry a release action (e.g. dropping
+// a texture reference), run exactly once when the entry leaves the table or is
+// never stored.
+class LongKeyedFlyweightTable {
+    private static final class Entry extends SoftReference<ICollectible> {
+        final Runnable onRelease;
+
+        Entry(ICollectible value, Runnable onRelease, ReferenceQueue<ICollectible> queue) {
+            super(value, queue);
+            this.onRelease = onRelease;
+        }
+
+        void release() {
+            if (onRelease != null) {
+                onRelease.run();
+            }
+        }
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final AtomicReferenceArray<Entry> values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table = new Table(64);
+    private final ReferenceQueue<ICollectible> cleared = new ReferenceQueue<>();
+    private int size; // occupied slots, including ones whose flyweight was reclaimed
+    private int reclaimed; // cleared references seen since the last rebuild
+    private int maxSize;
+    private long unpooled;
+
+    LongKeyedFlyweightTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public ICollectible get(long key) {
+        Table t = table;
+        for (int i = slot(key, t.mask);; i = (i + 1) & t.mask) {
+            Entry ref = t.values.get(i);
+            if (ref == null) {
+                return null;
+            }
+            if (t.keys[i] == key) {
+                return ref.get();
+            }
+        }
+    }
+
+    // Returns the value already stored under key, or stores and returns the new one.
+    // When the pool is full the new value is returned without being stored.
+    // onRelease runs right away unless the new value is stored.
+    public synchronized ICollectible putIfAbsent(long key, ICollectible value, Runnable onRelease) {
+        Table t = table;
+        for (int i = slot(key, t.mask);; i = (i + 1) & t.mask) {
+            Entry ref = t.values.get(i);
+            if (ref == null) {
+                break;
+            }
+            if (t.keys[i] == key) {
+                ICollectible existing = ref.get();
+                if (existing != null) {
+                    runRelease(onRelease);
+                    return existing;
+                }
+                ref.release();
+                t.values.set(i, new Entry(value, onRelease, cleared)); // reuse the reclaimed slot
+                return value;
+            }
+        }
+        if (size >= maxSize) {
+            while (cleared.poll() != null) {
+                reclaimed++;
+            }
+            // Compacting copies the whole table, so wait until it frees a real share of it
+            if (reclaimed == 0 || reclaimed < size / 8) {
+                unpooled++;
+                runRelease(onRelease);
+                return value;
+            }
+            t = rebuild(t.keys.length, k -> false);
+            if (size >= maxSize) {
+                unpooled++;
+                runRelease(onRelease);
+                return value;
+            }
+        }
+        if ((size + 1) * 2 > t.keys.length) {
+            t = rebuild(t.keys.length * 2, k -> false);
+        }
+        insert(t, key, new Entry(value, onRelease, cleared));
+        size++;
+        return value;
+    }
+
+    // Drops the entries whose key matches, running their release actions
+    public synchronized void removeIf(LongPredicate drop) {
+        rebuild(table.keys.length, drop);
+    }
+
+    private static void runRelease(Runnable onRelease) {
+        if (onRelease != null) {
+            onRelease.run();
+        }
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized long unpooled() {
+        return unpooled;
+    }
+
+    public int liveCount() {
+        Table t = table;
+        int live = 0;
+        for (int i = 0; i < t.keys.length; i++) {
+            Entry ref = t.values.get(i);
+            if (ref != null && ref.get() != null) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    // Copies live entries into a fresh table, dropping reclaimed flyweights and
+    // the ones matching drop.
+    private Table rebuild(int capacity, LongPredicate drop) {
+        Table old = table;
+        Table fresh = new Table(capacity);
+        size = 0;
+        for (int i = 0; i < old.keys.length; i++) {
+            Entry ref = old.values.get(i);
+            if (ref == null) {
+                continue;
+            }
+            if (ref.get() != null && !drop.test(old.keys[i])) {
+                insert(fresh, old.keys[i], ref);
+                size++;
+            } else {
+                ref.release();
+            }
+        }
+        table = fresh;
+        reclaimed = 0;
+        return fresh;
+    }
+
+    private static void insert(Table t, long key, Entry ref) {
+        int i = slot(key, t.mask);
+        while (t.values.get(i) != null) {
+            i = (i + 1) & t.mask;
+        }
+        t.keys[i] = key;
+        t.values.set(i, ref);
+    }
+}
+
+// Point-in-time flyweight pool counters
+class FlyweightPoolStats {
+    final long hits, misses, unpooled, bytesSaved;
+    final int live, pinned, maxSize;
+
+    FlyweightPoolStats(long hits, long misses, long unpooled, int live, int pinned, int maxSize,
+            long bytesSaved) {
+        this.hits = hits;
+        this.misses = misses;
+        this.unpooled = unpooled;
+        this.live = live;
+        this.pinned = pinned;
+        this.maxSize = maxSize;
+        this.bytesSaved = bytesSaved;
+    }
+
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.2f live=%d/%d pinned=%d unpooled=%d bytesSaved=%d",
+                hits, misses, hitRate(), live, maxSize, pinned, unpooled, bytesSaved);
+    }
+}
+
 // Flyweight Factory
 
 class CollectibleFactory {
-    private static Map<String, ICollectible> cache = new HashMap<>();
+    // Key layout: bit 62 kind, 60-61 effect, 58-59 rarity, 56-57 gem name,
+    // 32-55 texture id, 0-31 size.
+    private static final long KIND_ORB = 0L, KIND_GEM = 1L;
+    private static final int MAX_TEXTURES = 1 << 24;
+
+    private static final int DEFAULT_MAX_POOLED = 1 << 16;
+    // Rough shallow size of one Orb/Gem (header, enum and texture refs, ints)
+    private static final int ESTIMATED_FLYWEIGHT_BYTES = 40;
+
+    private static final LongKeyedFlyweightTable cache = new LongKeyedFlyweightTable(DEFAULT_MAX_POOLED);
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final Map<String, Integer> textureIds = new ConcurrentHashMap<>();
+    private static final List<String> textures = new ArrayList<>();
+    // Registered texture ids are 0 .. textureCount - 1; read without a lock on hits
+    private static volatile int textureCount;
+    // Dense flyweight type ids, handed out on first request. A flyweight with an
+    // id is pinned: columnar stores refer to it by id, so it must never be reclaimed.
+    // Ids are per packed key, so unpooled copies of a type share the first one's id.
+    private static final List<ICollectible> types = new ArrayList<>();
+    private static final LongObjectMap<Integer> typeIds = new LongObjectMap<>();
+    // Optional; when set, every pooled flyweight holds a reference on its texture
+    // until it leaves the pool (see unloadPool)
+    private static volatile TextureCache textureCache;
+
+    public static void useTextureCache(TextureCache cache) {
+        textureCache = cache;
+    }
+
+    // Registers a texture path once and returns its id for the packed-key lookups.
+    public static int textureId(String texture) {
+        Integer id = textureIds.get(texture);
+        if (id != null) {
+            return id;
+        }
+        synchronized (textures) {
+            return textureIds.computeIfAbsent(texture, t -> {
+                if (textures.size() >= MAX_TEXTURES) {
+                    throw new IllegalStateException("Too many textures registered");
+                }
+                textures.add(t);
+                textureCount = textures.size();
+                return textures.size() - 1;
+            });
+        }
+    }
+
+    // An id outside the registered range would spill into the kind and enum bits
+    // of the packed key and could match a different flyweight
+    private static void checkTextureId(int textureId) {
+        if (textureId < 0 || textureId >= textureCount) {
+            throw new IllegalArgumentException("Unknown texture id " + textureId);
+        }
+    }
+
+    public static String texture(int textureId) {
+        synchronized (textures) {
+            return textures.get(textureId);
+        }
+    }
+
+    public static int typeId(ICollectible type) {
+        long key = keyOf(type);
+        synchronized (types) {
+            Integer id = typeIds.get(key);
+            if (id == null) {
+                id = types.size();
+                typeIds.put(key, id);
+                types.add(type);
+            }
+            return id;
+        }
+    }
+
+    private static long keyOf(ICollectible type) {
+        if (type instanceof Orb) {
+            Orb orb = (Orb) type;
+            return orbKey(orb.getEffect(), orb.getRarity(), orb.getSize(), textureId(orb.getTexture()));
+        }
+        if (type instanceof Gem) {
+            Gem gem = (Gem) type;
+            return gemKey(gem.getName(), gem.getRarity(), gem.getEffect(), gem.getSize(),
+                    textureId(gem.getTexture()));
+        }
+        throw new IllegalArgumentException("Not a factory flyweight: " + type);
+    }
+
+    public static ICollectible type(int typeId) {
+        synchronized (types) {
+            return types.get(typeId);
+        }
+    }
+
+    public static int typeCount() {
+        synchronized (types) {
+            return types.size();
+        }
+    }
+
+    // Value of every registered flyweight, indexed by type id
+    public static int[] valueTable() {
+        synchronized (types) {
+            int[] values = new int[types.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = types.get(i).getValue();
+            }
+            return values;
+        }
+    }
+
+    // Total value of an inventory given as flyweight type ids, summed in parallel.
+    public static long inventoryValue(int[] typeIds) {
+        int[] values = valueTable();
+        return IntStream.of(typeIds).parallel().mapToLong(id -> values[id]).sum();
+    }
+
+    public static long inventoryValue(List<ICollectible> inventory) {
+        return inventory.parallelStream().mapToLong(ICollectible::getValue).sum();
+    }
+
+    public static void setMaxPooled(int maxPooled) {
+        cache.setMaxSize(maxPooled);
+    }
+
+    public static FlyweightPoolStats stats() {
+        long hitCount = hits.sum();
+        return new FlyweightPoolStats(hitCount, misses.sum(), cache.unpooled(), cache.liveCount(),
+                typeCount(), cache.maxSize(), hitCount * ESTIMATED_FLYWEIGHT_BYTES);
+    }
+
+    // Drops every flyweight not pinned by typeId from the pool and releases their
+    // texture references, e.g. when a level is unloaded; the texture cache can
+    // then evict textures nothing uses any more.
+    public static void unloadPool() {
+        cache.removeIf(key -> {
+            synchronized (types) {
+                return typeIds.get(key) == null;
+            }
+        });
+    }
+
+    private static ICollectible register(long key, ICollectible candidate, String texture) {
+        // Take the texture first: if it cannot be loaded, nothing gets pooled
+        TextureCache textures = textureCache;
+        Runnable release = null;
+        if (textures != null) {
+            textures.acquire(texture);
+            release = () -> textures.release(texture);
+        }
+        ICollectible shared = cache.putIfAbsent(key, candidate, release);
+        if (shared != candidate) {
+            hits.increment(); // another thread created it first
+            return shared;
+        }
+        misses.increment();
+        return candidate;
+    }
+
+    static long orbKey(Orb.effect effectType, Orb.rarity rarityType, int size, int textureId) {
+        return pack(KIND_ORB, effectType.ordinal(), rarityType.ordinal(), 0, size, textureId);
+    }
+
+    static long gemKey(Gem.name gemType, Gem.rarity rarityType, Gem.effect effectType,
+            int size, int textureId) {
+        return pack(KIND_GEM, effectType.ordinal(), rarityType.ordinal(), gemType.ordinal(),
+                size, textureId);
+    }
+
+    private static long pack(long kind, int effect, int rarity, int gemName, int size, int textureId) {
+        return kind << 62
+                | (long) effect << 60
+                | (long) rarity << 58
+                | (long) gemName << 56
+                | (long) textureId << 32
+                | (size & 0xFFFFFFFFL);
+    }
 
     public static ICollectible getOrb(Orb.effect effectType,
             Orb.rarity rarityType, int size, String texture) {
-        String key = "orb-" + effectType + "-" + size + "-" + rarityType + "-" + texture;
+        return getOrb(effectType, rarityType, size, textureId(texture));
+    }
+
+    // Allocation-free on a hit: the key is a primitive long and the lookup is lock-free.
+    public static ICollectible getOrb(Orb.effect effectType,
+            Orb.rarity rarityType, int size, int textureId) {
+        checkTextureId(textureId);
+        long key = orbKey(effectType, rarityType, size, textureId);
         ICollectible orb = cache.get(key);
-        if (orb == null) {
-            orb = new Orb(effectType, rarityType, size, texture);
-            cache.put(key, orb);
+        if (orb != null) {
+            hits.increment();
+        } else {
+            String texture = texture(textureId);
+            orb = register(key, new Orb(effectType, rarityType, size, texture), texture);
         }
         return orb;
     }
 
     public static ICollectible getGem(Gem.name gemType, Gem.rarity rarityType,
             Gem.effect effectType, int size, String texture) {
-        String key = "gem-" + gemType + "-" + size + "-" + rarityType + "-" + texture + "-" + effectType;
+        return getGem(gemType, rarityType, effectType, size, textureId(texture));
+    }
+
+    public static ICollectible getGem(Gem.name gemType, Gem.rarity rarityType,
+            Gem.effect effectType, int size, int textureId) {
+        checkTextureId(textureId);
+        long key = gemKey(gemType, rarityType, effectType, size, textureId);
         ICollectible gem = cache.get(key);
-        if (gem == null) {
-            gem = new Gem(gemType, rarityType, effectType, size, texture);
-            cache.put(key, gem);
+        if (gem != null) {
+            hits.increment();
+        } else {
+            String texture = texture(textureId);
+            gem = register(key, new Gem(gemType, rarityType, effectType, size, texture), texture);
         }
         return gem;
     }
 }
 
+// Columnar world: one slot per placed collectible, stored as parallel int arrays
+// instead of a CollectibleExtrinsicState object per item (16 bytes per item).
+class CollectibleWorld {
+    static final int NO_BEARER = -1;
+
+    private int[] xs, ys, typeIds, bearerIds;
+    private int size;
+    private final List<Player> players = new ArrayList<>();
+
+    public CollectibleWorld(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        xs = new int[capacity];
+        ys = new int[capacity];
+        typeIds = new int[capacity];
+        bearerIds = new int[capacity];
+    }
+
+    public int registerPlayer(Player p) {
+        players.add(p);
+        return players.size() - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int x(int index) {
+        return xs[index];
+    }
+
+    public int y(int index) {
+        return ys[index];
+    }
+
+    public int typeId(int index) {
+        return typeIds[index];
+    }
+
+    public int bearerId(int index) {
+        return bearerIds[index];
+    }
+
+    public int spawn(int typeId, int x, int y) {
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        typeIds[size] = typeId;
+        bearerIds[size] = NO_BEARER;
+        return size++;
+    }
+
+    // Spawns count items of one type from parallel coordinate arrays; returns the first index.
+    public int spawn(int typeId, int[] x, int[] y, int offset, int count) {
+        ensureCapacity(size + count);
+        int first = size;
+        System.arraycopy(x, offset, xs, first, count);
+        System.arraycopy(y, offset, ys, first, count);
+        Arrays.fill(typeIds, first, first + count, typeId);
+        Arrays.fill(bearerIds, first, first + count, NO_BEARER);
+        size += count;
+        return first;
+    }
+
+    // Moves items in [from, to) by the same offset.
+    public void move(int from, int to, int xPosition, int yPosition) {
+        checkRange(from, to);
+        for (int i = from; i < to; i++) {
+            xs[i] += xPosition;
+        }
+        for (int i = from; i < to; i++) {
+            ys[i] += yPosition;
+        }
+    }
+
+    public void draw(int from, int to) {
+        draw(from, to, ConsoleRenderSink.INSTANCE);
+    }
+
+    public void draw(int from, int to, RenderSink sink) {
+        checkRange(from, to);
+        int lastType = -1;
+        ICollectible type = null;
+        for (int i = from; i < to; i++) {
+            if (typeIds[i] != lastType) {
+                lastType = typeIds[i];
+                type = CollectibleFactory.type(lastType);
+            }
+            type.draw(xs[i], ys[i], sink);
+        }
+    }
+
+    public void setBearer(int index, int playerId) {
+        bearerIds[index] = playerId;
+        CollectibleFactory.type(typeIds[index]).activateEffect(players.get(playerId));
+    }
+
+    // Moves each item in [from, to) by its own per-item offset.
+    void moveBy(int from, int to, int[] dx, int[] dy) {
+        for (int i = from; i < to; i++) {
+            xs[i] += dx[i];
+            ys[i] += dy[i];
+        }
+    }
+
+    // Appends interleaved (typeId, x, y) records, mapping file type ids through typeMap.
+    // Rejects the whole batch, leaving the world unchanged, if a record names a
+    // type outside typeMap.
+    void appendRecords(IntBuffer records, int count, int[] typeMap) {
+        ensureCapacity(size + count);
+        int start = size;
+        int[] chunk = new int[3 * 4096];
+        int remaining = count;
+        while (remaining > 0) {
+            int n = Math.min(remaining, 4096);
+            records.get(chunk, 0, 3 * n);
+            for (int k = 0; k < n; k++) {
+                int type = chunk[3 * k];
+                if (type < 0 || type >= typeMap.length) {
+                    int record = size - start;
+                    size = start;
+                    throw new IllegalArgumentException("Record " + record + " has unknown type " + type);
+                }
+                typeIds[size] = typeMap[type];
+                xs[size] = chunk[3 * k + 1];
+                ys[size] = chunk[3 * k + 2];
+                bearerIds[size] = NO_BEARER;
+                size++;
+            }
+            remaining -= n;
+        }
+    }
+
+    void writeRecords(IntBuffer out, int[] typeMap) {
+        int[] chunk = new int[3 * 4096];
+        for (int from = 0; from < size; from += 4096) {
+            int n = Math.min(size - from, 4096);
+            for (int k = 0; k < n; k++) {
+                chunk[3 * k] = typeMap[typeIds[from + k]];
+                chunk[3 * k + 1] = xs[from + k];
+                chunk[3 * k + 2] = ys[from + k];
+            }
+            out.put(chunk, 0, 3 * n);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + size);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= xs.length) {
+            return;
+        }
+        int capacity = Math.max(needed, xs.length + (xs.length >> 1));
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        typeIds = Arrays.copyOf(typeIds, capacity);
+        bearerIds = Arrays.copyOf(bearerIds, capacity);
+    }
+}
+
+// Fixed-timestep simulation over a CollectibleWorld. Each tick moves every
+// collectible by its velocity; the world is split into fixed index regions that
+// run as fork-join tasks. Items update independently with integer math, so the
+// result is the same for any pool size.
+class CollectibleSimulation {
+    private static final int DURATION_SAMPLES = 1024;
+
+    private final CollectibleWorld world;
+    private final ForkJoinPool pool;
+    private final int regionSize;
+    private final long tickNanos;
+    private int[] vx = new int[0], vy = new int[0];
+    private long accumulated;
+    private long ticks;
+    private final long[] tickDurations = new long[DURATION_SAMPLES];
+
+    public CollectibleSimulation(CollectibleWorld world, int parallelism, int regionSize, long tickNanos) {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("regionSize must be positive");
+        }
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos must be positive");
+        }
+        this.world = world;
+        this.pool = new ForkJoinPool(parallelism);
+        this.regionSize = regionSize;
+        this.tickNanos = tickNanos;
+    }
+
+    public void setVelocity(int index, int x, int y) {
+        ensureVelocities(index + 1);
+        vx[index] = x;
+        vy[index] = y;
+    }
+
+    public long ticks() {
+        return ticks;
+    }
+
+    // Runs as many whole ticks as fit in the elapsed time; the rest carries over.
+    public int advance(long elapsedNanos) {
+        accumulated += elapsedNanos;
+        int run = 0;
+        while (accumulated >= tickNanos) {
+            tick();
+            accumulated -= tickNanos;
+            run++;
+        }
+        return run;
+    }
+
+    public void tick() {
+        long start = System.nanoTime();
+        int size = world.size();
+        ensureVelocities(size);
+        int regions = size == 0 ? 0 : (size - 1) / regionSize + 1; // no overflow for huge regions
+        if (regions > 0) {
+            pool.invoke(new RegionTask(0, regions));
+        }
+        tickDurations[(int) (ticks % DURATION_SAMPLES)] = System.nanoTime() - start;
+        ticks++;
+    }
+
+    // Tick duration at percentile p (0-100) over the most recent ticks
+    public long tickPercentile(double p) {
+        int n = (int) Math.min(ticks, DURATION_SAMPLES);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(tickDurations, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, rank))];
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void ensureVelocities(int needed) {
+        if (vx.length < needed) {
+            int capacity = Math.max(needed, vx.length * 2);
+            vx = Arrays.copyOf(vx, capacity);
+            vy = Arrays.copyOf(vy, capacity);
+        }
+    }
+
+    private class RegionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int firstRegion, lastRegion;
+
+        RegionTask(int firstRegion, int lastRegion) {
+            this.firstRegion = firstRegion;
+            this.lastRegion = lastRegion;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastRegion - firstRegion == 1) {
+                int from = firstRegion * regionSize;
+                world.moveBy(from, (int) Math.min((long) from + regionSize, world.size()), vx, vy);
+                return;
+            }
+            int mid = (firstRegion + lastRegion) >>> 1;
+            invokeAll(new RegionTask(firstRegion, mid), new RegionTask(mid, lastRegion));
+        }
+    }
+}
+
+// Binary level file: a flyweight dictionary followed by packed (typeId, x, y)
+// int records, little-endian. Loaded through a memory-mapped read straight
+// into a CollectibleWorld. Bearers are runtime state and are not saved.
+//
+//   int magic, int version, int typeCount
+//   typeCount x { byte kind, byte effect, byte rarity, byte gemName, int size,
+//                 unsigned short textureLength, byte[textureLength] texture (UTF-8) }
+//   int itemCount, itemCount x { int typeId, int x, int y }
+class LevelSnapshot {
+    private static final int MAGIC = 0x4C564C31; // "LVL1"
+    private static final int VERSION = 1;
+    private static final byte KIND_ORB = 0, KIND_GEM = 1;
+
+    public static int load(Path file, CollectibleWorld world) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("Not a level snapshot: " + file);
+            }
+            int typeCount = buf.getInt();
+            if (typeCount < 0 || typeCount > buf.remaining() / 10) {
+                throw new IOException("Corrupt type dictionary in " + file);
+            }
+            int[] typeMap = new int[typeCount];
+            for (int i = 0; i < typeMap.length; i++) {
+                typeMap[i] = CollectibleFactory.typeId(readType(buf));
+            }
+            int count = buf.getInt();
+            if (count < 0 || buf.remaining() < count * 12L) {
+                throw new IOException("Truncated level snapshot: " + file);
+            }
+            world.appendRecords(buf.asIntBuffer(), count, typeMap);
+            return count;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated level snapshot: " + file, e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt level snapshot: " + file, e);
+        }
+    }
+
+    public static void save(CollectibleWorld world, Path file) throws IOException {
+        // Only the types the world uses go in the dictionary, renumbered densely
+        int[] typeMap = new int[CollectibleFactory.typeCount()];
+        Arrays.fill(typeMap, -1);
+        List<ICollectible> dictionary = new ArrayList<>();
+        for (int i = 0; i < world.size(); i++) {
+            int id = world.typeId(i);
+            if (typeMap[id] < 0) {
+                typeMap[id] = dictionary.size();
+                dictionary.add(CollectibleFactory.type(id));
+            }
+        }
+        List<byte[]> textures = new ArrayList<>();
+        long length = 16 + world.size() * 12L;
+        for (ICollectible type : dictionary) {
+            byte[] texture = texture(type).getBytes(StandardCharsets.UTF_8);
+            if (texture.length > 0xFFFF) {
+                throw new IOException("Texture path too long for a level snapshot: " + texture.length + " bytes");
+            }
+            textures.add(texture);
+            length += 10 + texture.length;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(dictionary.size());
+            for (int i = 0; i < dictionary.size(); i++) {
+                writeType(out, dictionary.get(i), textures.get(i));
+            }
+            out.putInt(world.size());
+            world.writeRecords(out.asIntBuffer(), typeMap);
+            out.force();
+        }
+    }
+
+    private static ICollectible readType(ByteBuffer buf) throws IOException {
+        byte kind = buf.get();
+        int effect = buf.get(), rarity = buf.get(), gemName = buf.get();
+        int size = buf.getInt();
+        byte[] texture = new byte[buf.getShort() & 0xFFFF];
+        buf.get(texture);
+        String path = new String(texture, StandardCharsets.UTF_8);
+        if (kind == KIND_ORB) {
+            return CollectibleFactory.getOrb(Orb.effect.values()[ordinal(effect, Orb.effect.values().length)],
+                    Orb.rarity.values()[ordinal(rarity, Orb.rarity.values().length)], size, path);
+        }
+        if (kind == KIND_GEM) {
+            return CollectibleFactory.getGem(Gem.name.values()[ordinal(gemName, Gem.name.values().length)],
+                    Gem.rarity.values()[ordinal(rarity, Gem.rarity.values().length)],
+                    Gem.effect.values()[ordinal(effect, Gem.effect.values().length)], size, path);
+        }
+        throw new IOException("Unknown collectible kind " + kind);
+    }
+
+    private static int ordinal(int value, int bound) throws IOException {
+        if (value < 0 || value >= bound) {
+            throw new IOException("Enum ordinal " + value + " out of range");
+        }
+        return value;
+    }
+
+    private static void writeType(ByteBuffer out, ICollectible type, byte[] texture) {
+        if (type instanceof Orb) {
+            Orb orb = (Orb) type;
+            out.put(KIND_ORB).put((byte) orb.getEffect().ordinal())
+                    .put((byte) orb.getRarity().ordinal()).put((byte) 0).putInt(orb.getSize());
+        } else {
+            Gem gem = (Gem) type;
+            out.put(KIND_GEM).put((byte) gem.getEffect().ordinal())
+                    .put((byte) gem.getRarity().ordinal()).put((byte) gem.getName().ordinal())
+                    .putInt(gem.getSize());
+        }
+        out.putShort((short) texture.length).put(texture);
+    }
+
+    private static String texture(ICollectible type) {
+        if (type instanceof Orb) {
+            return ((Orb) type).getTexture();
+        }
+        if (type instanceof Gem) {
+            return ((Gem) type).getTexture();
+        }
+        throw new IllegalArgumentException("Unsupported collectible: " + type);
+    }
+}
+
 // Client
 class GameDemo {
     public static void main(String[] args) {
@@ -267,5 +1669,81 @@ class GameDemo {
         player1.details();
         g1.setbarer(player1);
         player1.details();
+
+        System.out.println("-----------------Columnar world----------------- ");
+        CollectibleWorld world = new CollectibleWorld(1024);
+        int player = world.registerPlayer(player1);
+        int orbType = CollectibleFactory.typeId(orb1);
+        int first = world.spawn(orbType, new int[] { 1, 2, 3 }, new int[] { 4, 5, 6 }, 0, 3);
+        world.spawn(CollectibleFactory.typeId(gem1), 7, 8);
+        world.move(first, first + 3, 1, 1);
+        world.draw(0, world.size());
+        world.setBearer(first, player);
+        player1.details();
+
+        System.out.println("-----------------Pickup query----------------- ");
+        CollectibleGrid grid = new CollectibleGrid(16);
+        CollectibleExtrinsicState near = new CollectibleExtrinsicState(orb1, 40, 40, grid);
+        new CollectibleExtrinsicState(gem1, 200, 200, grid);
+        near.move(3, 2);
+        for (CollectibleExtrinsicState item : grid.queryRadius(45, 45, 5)) {
+            item.draw();
+        }
+
+        System.out.println("-----------------Inventory value----------------- ");
+        int[] inventory = { orbType, orbType, CollectibleFactory.typeId(gem1) };
+        System.out.println("Inventory value: " + CollectibleFactory.inventoryValue(inventory));
+
+        System.out.println("-----------------Batched frame----------------- ");
+        RenderSink frameSink = new BatchedRenderSink(System.out);
+        world.draw(0, world.size(), frameSink);
+        frameSink.flush();
+
+        System.out.println("-----------------Texture cache----------------- ");
+        try {
+            Path texturePath = Files.createTempFile("orb", ".png");
+            Files.write(texturePath, new byte[4096]);
+            TextureCache textureCache = new TextureCache(1024);
+            CollectibleFactory.useTextureCache(textureCache);
+            CollectibleFactory.getOrb(Orb.effect.healing, Orb.rarity.rare, 6, texturePath.toString());
+            CollectibleFactory.getOrb(Orb.effect.healing, Orb.rarity.common, 6, texturePath.toString());
+            System.out.println("Texture loads: " + textureCache.loads() + ", bytes: " + textureCache.loadedBytes());
+            CollectibleFactory.unloadPool();
+            System.out.println("After unloading the pool, bytes: " + textureCache.loadedBytes());
+            CollectibleFactory.useTextureCache(null);
+            Files.deleteIfExists(texturePath);
+        } catch (IOException e) {
+            System.out.println("Texture demo skipped: " + e.getMessage());
+        }
+
+        System.out.println("-----------------Effect engine----------------- ");
+        EffectEngine effects = new EffectEngine(4);
+        int denise = effects.registerPlayer(player1);
+        IntStream.range(0, 1000).parallel().forEach(i -> effects.submit(denise, i % 2 == 0 ? orb1 : gem1));
+        effects.applyPending();
+        player1.details();
+
+        System.out.println("-----------------Pool metrics----------------- ");
+        System.out.println(CollectibleFactory.stats());
+
+        System.out.println("-----------------Level snapshot----------------- ");
+        try {
+            Path level = Files.createTempFile("level", ".lvl");
+            LevelSnapshot.save(world, level);
+            CollectibleWorld loaded = new CollectibleWorld(world.size());
+            System.out.println("Loaded items: " + LevelSnapshot.load(level, loaded));
+            loaded.draw(0, loaded.size());
+            Files.deleteIfExists(level);
+        } catch (IOException e) {
+            System.out.println("Level snapshot failed: " + e.getMessage());
+        }
+
+        System.out.println("-----------------Simulation----------------- ");
+        CollectibleSimulation simulation = new CollectibleSimulation(world, 2, 1024, 16_000_000L);
+        simulation.setVelocity(first, 1, -1);
+        simulation.advance(50_000_000L);
+        world.draw(first, first + 1);
+        System.out.println("Ticks: " + simulation.ticks() + ", p99 tick nanos: " + simulation.tickPercentile(99));
+        simulation.shutdown();
     }
 }